@@ -0,0 +1,222 @@
+/*
+ * Copyright (c) 2015, Andrej Golovnin
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  Redistributions of source code must retain the above copyright notice, this
+ *  list of conditions and the following disclaimer.
+ *
+ *  Redistributions in binary form must reproduce the above copyright notice,
+ *  this list of conditions and the following disclaimer in the documentation
+ *  and/or other materials provided with the distribution.
+ *
+ *  Neither the name of fontviewer nor the names of its
+ *  contributors may be used to endorse or promote products derived from
+ *  this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.github.golovnin.fontviewer;
+
+import java.awt.Font;
+import java.awt.Rectangle;
+import java.awt.font.FontRenderContext;
+import java.awt.font.GlyphVector;
+import java.awt.font.LineMetrics;
+import java.awt.geom.Point2D;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongConsumer;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Finds glyphs whose ink exceeds the nominal box of a size, e.g. 16x16
+ * pixels at 96 dpi and 20x20 pixels at 120 dpi, or the ascent and descent
+ * of the font. The ink bounds are the pixel bounds of the glyphs laid out
+ * with one glyph vector per font and range of code points. Ranges are
+ * scanned in parallel.
+ *
+ * @author Andrej Golovnin
+ */
+final class ClippingScanner {
+
+    static final int EXCEEDS_LEFT    = 1;
+    static final int EXCEEDS_RIGHT   = 1 << 1;
+    static final int EXCEEDS_HEIGHT  = 1 << 2;
+    static final int EXCEEDS_ASCENT  = 1 << 3;
+    static final int EXCEEDS_DESCENT = 1 << 4;
+
+    private static final int RANGE_SIZE = 2048;
+    private static final FontRenderContext FRC = new FontRenderContext(null, true, false);
+
+    private final int[] codePoints;
+    private final Font[][] fonts = new Font[Dpi.values().length][];
+
+    // Keeps a snapshot, so the model may be evicted or reloaded during a scan.
+    ClippingScanner(FontModel fontModel) {
+        requireNonNull(fontModel, "fontModel may not be null");
+        FontSnapshot snapshot = fontModel.getSnapshot();
+        this.codePoints = snapshot.getCodePoints();
+        for (Dpi dpi : Dpi.values()) {
+            fonts[dpi.ordinal()] = dpi.fontsOf(snapshot).toArray();
+        }
+    }
+
+    /**
+     * Returns the number of glyph renderings a scan checks.
+     */
+    long getWorkSize() {
+        return (long) codePoints.length
+                * Dpi.values().length * Fonts.NOMINAL_SIZES.length;
+    }
+
+    /**
+     * Scans all glyphs at all sizes and DPI factors and reports the number
+     * of checked glyph renderings to the progress consumer, which may be
+     * called on any thread.
+     */
+    List<Issue> scan(LongConsumer progress) throws InterruptedException {
+        AtomicLong done = new AtomicLong();
+        ExecutorService executor = Executors.newFixedThreadPool(
+                Runtime.getRuntime().availableProcessors());
+        try {
+            List<Future<List<Issue>>> futures = new ArrayList<>();
+            for (Dpi dpi : Dpi.values()) {
+                Font[] dpiFonts = fonts[dpi.ordinal()];
+                for (int s = 0; s < dpiFonts.length; s++) {
+                    int box = Math.round(Fonts.NOMINAL_SIZES[s] * dpi.getScaleFactor());
+                    for (int from = 0; from < codePoints.length; from += RANGE_SIZE) {
+                        int[] range = Arrays.copyOfRange(codePoints, from,
+                                Math.min(from + RANGE_SIZE, codePoints.length));
+                        Font font = dpiFonts[s];
+                        String size = Fonts.SIZE_NAMES[s];
+                        futures.add(executor.submit(() -> {
+                            List<Issue> issues = scan(font, dpi, size, box, range);
+                            progress.accept(done.addAndGet(range.length));
+                            return issues;
+                        }));
+                    }
+                }
+            }
+            List<Issue> issues = new ArrayList<>();
+            for (Future<List<Issue>> f : futures) {
+                issues.addAll(f.get());
+            }
+            return issues;
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof InterruptedException) {
+                throw (InterruptedException) cause;
+            }
+            throw new IllegalStateException(cause);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static List<Issue> scan(Font font, Dpi dpi, String size, int box, int[] codePoints)
+            throws InterruptedException
+    {
+        if (Thread.currentThread().isInterrupted()) {
+            throw new InterruptedException();
+        }
+        LineMetrics lm = font.getLineMetrics("", FRC);
+        int ascent = (int) Math.ceil(lm.getAscent());
+        int descent = (int) Math.ceil(lm.getDescent());
+        GlyphVector gv = font.createGlyphVector(FRC, GlyphMetricsTable.toChars(codePoints));
+        List<Issue> issues = Collections.emptyList();
+        int charIndex = 0;
+        for (int cp : codePoints) {
+            Rectangle ink = gv.getGlyphPixelBounds(charIndex, FRC, 0, 0);
+            if (!ink.isEmpty()) {
+                Point2D position = gv.getGlyphPosition(charIndex);
+                ink.translate(-(int) Math.round(position.getX()), -(int) Math.round(position.getY()));
+                int flags = check(ink, box, ascent, descent);
+                if (flags != 0) {
+                    if (issues.isEmpty()) {
+                        issues = new ArrayList<>();
+                    }
+                    issues.add(new Issue(cp, dpi, size, box, ink, flags));
+                }
+            }
+            charIndex += Character.charCount(cp);
+        }
+        return issues;
+    }
+
+    private static int check(Rectangle ink, int box, int ascent, int descent) {
+        int flags = 0;
+        if (ink.x < 0) {
+            flags |= EXCEEDS_LEFT;
+        }
+        if (ink.x + ink.width > box) {
+            flags |= EXCEEDS_RIGHT;
+        }
+        if (ink.height > box) {
+            flags |= EXCEEDS_HEIGHT;
+        }
+        if (-ink.y > ascent) {
+            flags |= EXCEEDS_ASCENT;
+        }
+        if (ink.y + ink.height > descent) {
+            flags |= EXCEEDS_DESCENT;
+        }
+        return flags;
+    }
+
+    static final class Issue {
+
+        final int codePoint;
+        final Dpi dpi;
+        final String size;
+        final int box;
+        final Rectangle ink;
+        final int flags;
+
+        Issue(int codePoint, Dpi dpi, String size, int box, Rectangle ink, int flags) {
+            this.codePoint = codePoint;
+            this.dpi = dpi;
+            this.size = size;
+            this.box = box;
+            this.ink = ink;
+            this.flags = flags;
+        }
+
+        String describe() {
+            StringBuilder sb = new StringBuilder();
+            append(sb, EXCEEDS_LEFT, "left of the box");
+            append(sb, EXCEEDS_RIGHT, "right of the box");
+            append(sb, EXCEEDS_HEIGHT, "taller than the box");
+            append(sb, EXCEEDS_ASCENT, "above the ascent");
+            append(sb, EXCEEDS_DESCENT, "below the descent");
+            return sb.toString();
+        }
+
+        private void append(StringBuilder sb, int flag, String description) {
+            if ((flags & flag) != 0) {
+                sb.append(sb.length() > 0 ? ", " : "").append(description);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,142 @@
+/*
+ * Copyright (c) 2015, Andrej Golovnin
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  Redistributions of source code must retain the above copyright notice, this
+ *  list of conditions and the following disclaimer.
+ *
+ *  Redistributions in binary form must reproduce the above copyright notice,
+ *  this list of conditions and the following disclaimer in the documentation
+ *  and/or other materials provided with the distribution.
+ *
+ *  Neither the name of fontviewer nor the names of its
+ *  contributors may be used to endorse or promote products derived from
+ *  this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.github.golovnin.fontviewer;
+
+import com.github.golovnin.fontviewer.ClippingScanner.Issue;
+import com.jgoodies.forms.builder.FormBuilder;
+import com.jgoodies.forms.factories.Paddings;
+
+import javax.swing.*;
+import javax.swing.table.AbstractTableModel;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Scans a font for clipped glyphs in the background and lists them.
+ *
+ * @author Andrej Golovnin
+ */
+final class ClippingView {
+
+    private final FontModel fontModel;
+    private final List<Issue> issues;
+
+    private ClippingView(FontModel fontModel, List<Issue> issues) {
+        this.fontModel = fontModel;
+        this.issues = issues;
+    }
+
+    static void scan(FontModel fontModel) {
+        requireNonNull(fontModel, "fontModel may not be null");
+        ClippingScanner scanner = new ClippingScanner(fontModel);
+        new ProgressDialog("Scanning for clipped glyphs", new SwingWorker<List<Issue>, Void>() {
+            @Override
+            protected List<Issue> doInBackground() throws InterruptedException {
+                long total = Math.max(scanner.getWorkSize(), 1);
+                return scanner.scan(done -> setProgress((int) (done * 100 / total)));
+            }
+
+            @Override
+            protected void done() {
+                try {
+                    new ClippingView(fontModel, get()).show();
+                } catch (CancellationException | InterruptedException e) {
+                    // Cancelled by the user
+                } catch (ExecutionException e) {
+                    JOptionPane.showMessageDialog(JOptionPane.getRootFrame(),
+                            e.getCause().toString(), "Clipping scan failed",
+                            JOptionPane.ERROR_MESSAGE);
+                }
+            }
+        }).start();
+    }
+
+    private void show() {
+        JDialog dialog = new JDialog(JOptionPane.getRootFrame(), "Clipped Glyphs :: " + fontModel);
+        dialog.setDefaultCloseOperation(WindowConstants.DISPOSE_ON_CLOSE);
+        JTable table = new JTable(new IssueTableModel());
+        table.setAutoCreateRowSorter(true);
+        dialog.setContentPane(FormBuilder.create()
+            .columns("f:360dlu:g")
+            .rows("p, $rg, f:200dlu:g")
+            .padding(Paddings.DIALOG)
+
+            .add(issues.size() + " clipped glyph renderings")    .xy(1, 1)
+            .add(MainView.createScrollPane(table))               .xy(1, 3)
+            .build());
+        dialog.pack();
+        dialog.setLocationRelativeTo(JOptionPane.getRootFrame());
+        dialog.setVisible(true);
+    }
+
+    private final class IssueTableModel extends AbstractTableModel {
+
+        private final String[] columnNames = { "Code", "DPI", "Size", "Box", "Ink bounds", "Problem" };
+
+        @Override
+        public int getRowCount() {
+            return issues.size();
+        }
+
+        @Override
+        public int getColumnCount() {
+            return columnNames.length;
+        }
+
+        @Override
+        public String getColumnName(int column) {
+            return columnNames[column];
+        }
+
+        @Override
+        public Class<?> getColumnClass(int column) {
+            return column == 1 || column == 3 ? Integer.class : String.class;
+        }
+
+        @Override
+        public Object getValueAt(int row, int column) {
+            Issue issue = issues.get(row);
+            switch (column) {
+                case 0:  return String.format("U+%04X", issue.codePoint);
+                case 1:  return issue.dpi.getDpi();
+                case 2:  return issue.size;
+                case 3:  return issue.box;
+                case 4:  return String.format("%d, %d, %dx%d",
+                                issue.ink.x, issue.ink.y, issue.ink.width, issue.ink.height);
+                default: return issue.describe();
+            }
+        }
+    }
+
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright (c) 2015, Andrej Golovnin
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  Redistributions of source code must retain the above copyright notice, this
+ *  list of conditions and the following disclaimer.
+ *
+ *  Redistributions in binary form must reproduce the above copyright notice,
+ *  this list of conditions and the following disclaimer in the documentation
+ *  and/or other materials provided with the distribution.
+ *
+ *  Neither the name of fontviewer nor the names of its
+ *  contributors may be used to endorse or promote products derived from
+ *  this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.github.golovnin.fontviewer;
+
+import java.util.BitSet;
+import java.util.stream.IntStream;
+
+/**
+ * The number of occurrences of every code point in a text corpus.
+ *
+ * @author Andrej Golovnin
+ */
+final class CorpusHistogram {
+
+    private final long[] counts;
+    private final long bytes;
+    private final BitSet used;
+
+    CorpusHistogram(long[] counts, long bytes) {
+        this.counts = counts;
+        this.bytes = bytes;
+        this.used = new BitSet(counts.length);
+        for (int cp = 0; cp < counts.length; cp++) {
+            if (counts[cp] > 0 && !isIgnorable(cp)) {
+                used.set(cp);
+            }
+        }
+    }
+
+    long getBytes() {
+        return bytes;
+    }
+
+    long getCount(int codePoint) {
+        return counts[codePoint];
+    }
+
+    /**
+     * Returns the code points occurring in the corpus, except for control
+     * characters and the byte order mark, which no font needs to display.
+     * The result must not be modified.
+     */
+    BitSet getCodePoints() {
+        return used;
+    }
+
+    /**
+     * Returns the used code points not covered by the given coverage,
+     * the most frequent first.
+     */
+    int[] getMissing(BitSet coverage) {
+        BitSet missing = (BitSet) used.clone();
+        missing.andNot(coverage);
+        return missing.stream()
+                .boxed()
+                .sorted((a, b) -> Long.compare(counts[b], counts[a]))
+                .mapToInt(Integer::intValue)
+                .toArray();
+    }
+
+    long getOccurrences(int[] codePoints) {
+        return IntStream.of(codePoints).mapToLong(cp -> counts[cp]).sum();
+    }
+
+    private static boolean isIgnorable(int cp) {
+        return Character.isISOControl(cp) || cp == 0xFEFF;
+    }
+
+}
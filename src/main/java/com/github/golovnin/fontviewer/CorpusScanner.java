@@ -0,0 +1,287 @@
+/*
+ * Copyright (c) 2015, Andrej Golovnin
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  Redistributions of source code must retain the above copyright notice, this
+ *  list of conditions and the following disclaimer.
+ *
+ *  Redistributions in binary form must reproduce the above copyright notice,
+ *  this list of conditions and the following disclaimer in the documentation
+ *  and/or other materials provided with the distribution.
+ *
+ *  Neither the name of fontviewer nor the names of its
+ *  contributors may be used to endorse or promote products derived from
+ *  this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.github.golovnin.fontviewer;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongConsumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Builds a code point histogram of UTF-8 text files. Files are split into
+ * segments, which are decoded in parallel in fixed size chunks, so that the
+ * memory use does not depend on the size of the corpus. Malformed input is
+ * skipped.
+ *
+ * @author Andrej Golovnin
+ */
+final class CorpusScanner {
+
+    private static final long SEGMENT_SIZE = 32L * 1024 * 1024;
+    private static final int CHUNK_SIZE = 256 * 1024;
+    // Local counts are merged before they can overflow.
+    private static final int FLUSH_THRESHOLD = 1 << 30;
+
+    private final int parallelism;
+
+    CorpusScanner() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    CorpusScanner(int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("parallelism must be positive: " + parallelism);
+        }
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Returns all regular files in the given files and directories.
+     */
+    static List<Path> collectFiles(List<Path> roots) throws IOException {
+        List<Path> files = new ArrayList<>();
+        for (Path root : roots) {
+            try (Stream<Path> s = Files.walk(root)) {
+                files.addAll(s.filter(Files::isRegularFile).collect(Collectors.toList()));
+            }
+        }
+        return files;
+    }
+
+    static long totalSize(List<Path> files) throws IOException {
+        long total = 0;
+        for (Path file : files) {
+            total += Files.size(file);
+        }
+        return total;
+    }
+
+    /**
+     * Scans the files and reports the number of bytes processed so far
+     * to the progress consumer, which may be called on any thread.
+     */
+    CorpusHistogram scan(List<Path> files, LongConsumer progress)
+            throws IOException, InterruptedException
+    {
+        requireNonNull(files, "files may not be null");
+        requireNonNull(progress, "progress may not be null");
+        List<Segment> segments = new ArrayList<>();
+        for (Path file : files) {
+            long size = Files.size(file);
+            for (long start = 0; start < size; start += SEGMENT_SIZE) {
+                segments.add(new Segment(file, start, Math.min(start + SEGMENT_SIZE, size)));
+            }
+        }
+
+        long[] counts = new long[Character.MAX_CODE_POINT + 1];
+        AtomicInteger nextSegment = new AtomicInteger();
+        AtomicLong processed = new AtomicLong();
+        ExecutorService executor = Executors.newFixedThreadPool(parallelism);
+        try {
+            List<Future<Void>> futures = new ArrayList<>();
+            for (int i = 0; i < parallelism; i++) {
+                futures.add(executor.submit(() -> {
+                    new Worker(counts).run(segments, nextSegment, processed, progress);
+                    return null;
+                }));
+            }
+            for (Future<Void> f : futures) {
+                f.get();
+            }
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            throw new IOException(cause);
+        } finally {
+            executor.shutdownNow();
+        }
+        return new CorpusHistogram(counts, processed.get());
+    }
+
+    private static final class Segment {
+
+        final Path file;
+        final long start;
+        final long end;
+
+        Segment(Path file, long start, long end) {
+            this.file = file;
+            this.start = start;
+            this.end = end;
+        }
+    }
+
+    private static final class Worker {
+
+        private final long[] sharedCounts;
+        private final int[] counts = new int[Character.MAX_CODE_POINT + 1];
+        private final ByteBuffer bytes = ByteBuffer.allocateDirect(CHUNK_SIZE);
+        private final CharBuffer chars = CharBuffer.allocate(CHUNK_SIZE);
+        private final CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+                .onMalformedInput(CodingErrorAction.IGNORE)
+                .onUnmappableCharacter(CodingErrorAction.IGNORE);
+        private int pending;
+        private char highSurrogate;
+
+        Worker(long[] sharedCounts) {
+            this.sharedCounts = sharedCounts;
+        }
+
+        void run(List<Segment> segments, AtomicInteger nextSegment,
+                 AtomicLong processed, LongConsumer progress)
+                throws IOException, InterruptedException
+        {
+            try {
+                for (int i = nextSegment.getAndIncrement(); i < segments.size();
+                     i = nextSegment.getAndIncrement())
+                {
+                    if (Thread.interrupted()) {
+                        throw new InterruptedException();
+                    }
+                    Segment segment = segments.get(i);
+                    scan(segment);
+                    progress.accept(processed.addAndGet(segment.end - segment.start));
+                }
+            } finally {
+                flush();
+            }
+        }
+
+        private void scan(Segment segment) throws IOException, InterruptedException {
+            try (FileChannel channel = FileChannel.open(segment.file, StandardOpenOption.READ)) {
+                // Segments start and end at the first byte of a character.
+                long position = alignToCharacter(channel, segment.start);
+                long end = alignToCharacter(channel, segment.end);
+                decoder.reset();
+                bytes.clear();
+                highSurrogate = 0;
+                while (position < end) {
+                    if (Thread.currentThread().isInterrupted()) {
+                        throw new InterruptedException();
+                    }
+                    int limit = (int) Math.min(bytes.remaining(), end - position);
+                    bytes.limit(bytes.position() + limit);
+                    int read = channel.read(bytes, position);
+                    if (read < 0) {
+                        break;
+                    }
+                    position += read;
+                    bytes.flip();
+                    decode(position >= end);
+                    bytes.compact();
+                }
+                bytes.flip();
+                decode(true);
+                chars.clear();
+                decoder.flush(chars);
+                count();
+            }
+        }
+
+        private void decode(boolean endOfInput) {
+            while (true) {
+                chars.clear();
+                boolean overflow = decoder.decode(bytes, chars, endOfInput).isOverflow();
+                count();
+                if (!overflow) {
+                    return;
+                }
+            }
+        }
+
+        private void count() {
+            chars.flip();
+            while (chars.hasRemaining()) {
+                char c = chars.get();
+                int cp = c;
+                if (Character.isHighSurrogate(c)) {
+                    highSurrogate = c;
+                    continue;
+                }
+                if (Character.isLowSurrogate(c) && highSurrogate != 0) {
+                    cp = Character.toCodePoint(highSurrogate, c);
+                }
+                highSurrogate = 0;
+                counts[cp]++;
+                if (++pending == FLUSH_THRESHOLD) {
+                    flush();
+                }
+            }
+        }
+
+        private void flush() {
+            synchronized (sharedCounts) {
+                for (int cp = 0; cp < counts.length; cp++) {
+                    sharedCounts[cp] += counts[cp];
+                }
+            }
+            Arrays.fill(counts, 0);
+            pending = 0;
+        }
+
+        private static long alignToCharacter(FileChannel channel, long offset) throws IOException {
+            if (offset == 0 || offset >= channel.size()) {
+                return offset;
+            }
+            ByteBuffer b = ByteBuffer.allocate(4);
+            channel.read(b, offset);
+            b.flip();
+            int skipped = 0;
+            while (b.hasRemaining() && (b.get() & 0xC0) == 0x80) {
+                skipped++;
+            }
+            return offset + skipped;
+        }
+    }
+
+}
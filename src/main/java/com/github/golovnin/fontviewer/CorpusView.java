@@ -0,0 +1,272 @@
+/*
+ * Copyright (c) 2015, Andrej Golovnin
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  Redistributions of source code must retain the above copyright notice, this
+ *  list of conditions and the following disclaimer.
+ *
+ *  Redistributions in binary form must reproduce the above copyright notice,
+ *  this list of conditions and the following disclaimer in the documentation
+ *  and/or other materials provided with the distribution.
+ *
+ *  Neither the name of fontviewer nor the names of its
+ *  contributors may be used to endorse or promote products derived from
+ *  this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.github.golovnin.fontviewer;
+
+import com.jgoodies.forms.builder.FormBuilder;
+import com.jgoodies.forms.factories.Paddings;
+
+import javax.swing.*;
+import javax.swing.table.AbstractTableModel;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Consumer;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Checks the loaded fonts against the code points used in a text corpus
+ * and shows the missing code points per font, the most frequent first.
+ *
+ * @author Andrej Golovnin
+ */
+final class CorpusView {
+
+    private static final int TOP_MISSING = 10;
+
+    private final List<FontModel> fonts;
+    private final int skippedCount;
+    private final CorpusHistogram histogram;
+    private final int[][] missing;
+    private final MissingTableModel missingModel = new MissingTableModel();
+
+    private CorpusView(List<FontModel> fonts, int skippedCount, CorpusHistogram histogram) {
+        this.fonts = fonts;
+        this.skippedCount = skippedCount;
+        this.histogram = histogram;
+        this.missing = new int[fonts.size()][];
+        for (int i = 0; i < missing.length; i++) {
+            missing[i] = histogram.getMissing(fonts.get(i).getCoverage());
+        }
+    }
+
+    /**
+     * Lets the user choose the corpus files and directories and scans them
+     * in the background. The histogram is passed to the consumer on the EDT.
+     */
+    static void scanCorpus(Consumer<CorpusHistogram> consumer) {
+        requireNonNull(consumer, "consumer may not be null");
+        JFileChooser chooser = new JFileChooser();
+        chooser.setFileSelectionMode(JFileChooser.FILES_AND_DIRECTORIES);
+        chooser.setMultiSelectionEnabled(true);
+        chooser.setDialogTitle("Choose corpus files and directories");
+        if (chooser.showOpenDialog(JOptionPane.getRootFrame()) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        List<Path> roots = new ArrayList<>();
+        for (File f : chooser.getSelectedFiles()) {
+            roots.add(f.toPath());
+        }
+        new ProgressDialog("Scanning corpus", new CorpusWorker(roots, consumer)).start();
+    }
+
+    /**
+     * Scans a corpus and checks it against the fonts that have been loaded
+     * at least once, the coverage of the other fonts is not known yet.
+     */
+    static void checkCorpus(List<FontModel> fonts) {
+        List<FontModel> snapshot = new ArrayList<>();
+        for (FontModel fm : fonts) {
+            if (fm.getCoverage() != null) {
+                snapshot.add(fm);
+            }
+        }
+        int skippedCount = fonts.size() - snapshot.size();
+        scanCorpus(histogram -> new CorpusView(snapshot, skippedCount, histogram).show());
+    }
+
+    private void show() {
+        JDialog dialog = new JDialog(JOptionPane.getRootFrame(), "Corpus Check");
+        dialog.setDefaultCloseOperation(WindowConstants.DISPOSE_ON_CLOSE);
+        dialog.setContentPane(createView());
+        dialog.pack();
+        dialog.setLocationRelativeTo(JOptionPane.getRootFrame());
+        dialog.setVisible(true);
+    }
+
+    private JComponent createView() {
+        JTable fontTable = new JTable(new FontTableModel());
+        fontTable.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        fontTable.getSelectionModel().addListSelectionListener(e -> {
+            if (!e.getValueIsAdjusting()) {
+                int row = fontTable.getSelectedRow();
+                missingModel.setCodePoints(row >= 0 ? missing[row] : null);
+            }
+        });
+        return FormBuilder.create()
+            .columns("f:300dlu:g")
+            .rows("p, $rg, f:100dlu:g, $ug, p, $rg, f:120dlu:g")
+            .padding(Paddings.DIALOG)
+
+            .add(String.format("%,d bytes, %,d distinct code points, %,d fonts checked%s",
+                    histogram.getBytes(),
+                    histogram.getCodePoints().cardinality(),
+                    fonts.size(),
+                    skippedCount > 0
+                        ? String.format(", %,d never loaded fonts skipped", skippedCount)
+                        : ""))                                      .xy(1, 1)
+            .add(MainView.createScrollPane(fontTable))              .xy(1, 3)
+            .add("Missing code points of the selected font:")       .xy(1, 5)
+            .add(MainView.createScrollPane(new JTable(missingModel))) .xy(1, 7)
+            .build();
+    }
+
+    private static String format(int codePoint) {
+        return String.format("U+%04X", codePoint);
+    }
+
+    private static final class CorpusWorker extends SwingWorker<CorpusHistogram, Void> {
+
+        private final List<Path> roots;
+        private final Consumer<CorpusHistogram> consumer;
+
+        CorpusWorker(List<Path> roots, Consumer<CorpusHistogram> consumer) {
+            this.roots = roots;
+            this.consumer = consumer;
+        }
+
+        @Override
+        protected CorpusHistogram doInBackground() throws IOException, InterruptedException {
+            List<Path> files = CorpusScanner.collectFiles(roots);
+            long total = Math.max(CorpusScanner.totalSize(files), 1);
+            // Files can grow while they are scanned.
+            return new CorpusScanner().scan(files,
+                    processed -> setProgress((int) Math.min(100, processed * 100 / total)));
+        }
+
+        @Override
+        protected void done() {
+            try {
+                consumer.accept(get());
+            } catch (CancellationException | InterruptedException e) {
+                // Cancelled by the user
+            } catch (ExecutionException e) {
+                JOptionPane.showMessageDialog(JOptionPane.getRootFrame(),
+                        e.getCause().toString(), "Corpus scan failed",
+                        JOptionPane.ERROR_MESSAGE);
+            }
+        }
+    }
+
+    private final class FontTableModel extends AbstractTableModel {
+
+        private final String[] columnNames = {
+            "Font", "Missing", "Missing occurrences", "Most frequent missing"
+        };
+
+        @Override
+        public int getRowCount() {
+            return fonts.size();
+        }
+
+        @Override
+        public int getColumnCount() {
+            return columnNames.length;
+        }
+
+        @Override
+        public String getColumnName(int column) {
+            return columnNames[column];
+        }
+
+        @Override
+        public Class<?> getColumnClass(int column) {
+            return column == 1 ? Integer.class : column == 2 ? Long.class : String.class;
+        }
+
+        @Override
+        public Object getValueAt(int row, int column) {
+            switch (column) {
+                case 0:  return fonts.get(row).toString();
+                case 1:  return missing[row].length;
+                case 2:  return histogram.getOccurrences(missing[row]);
+                default: return topMissing(missing[row]);
+            }
+        }
+
+        private String topMissing(int[] codePoints) {
+            StringBuilder sb = new StringBuilder();
+            for (int i = 0; i < Math.min(TOP_MISSING, codePoints.length); i++) {
+                if (i > 0) {
+                    sb.append(", ");
+                }
+                sb.append(format(codePoints[i]));
+            }
+            return sb.toString();
+        }
+    }
+
+    private final class MissingTableModel extends AbstractTableModel {
+
+        private final String[] columnNames = { "Code", "Character", "Occurrences" };
+        private int[] codePoints = new int[0];
+
+        void setCodePoints(int[] codePoints) {
+            this.codePoints = codePoints != null ? codePoints : new int[0];
+            fireTableDataChanged();
+        }
+
+        @Override
+        public int getRowCount() {
+            return codePoints.length;
+        }
+
+        @Override
+        public int getColumnCount() {
+            return columnNames.length;
+        }
+
+        @Override
+        public String getColumnName(int column) {
+            return columnNames[column];
+        }
+
+        @Override
+        public Class<?> getColumnClass(int column) {
+            return column == 2 ? Long.class : String.class;
+        }
+
+        @Override
+        public Object getValueAt(int row, int column) {
+            int cp = codePoints[row];
+            switch (column) {
+                case 0:  return format(cp);
+                case 1:  return new String(Character.toChars(cp));
+                default: return histogram.getCount(cp);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,221 @@
+/*
+ * Copyright (c) 2015, Andrej Golovnin
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  Redistributions of source code must retain the above copyright notice, this
+ *  list of conditions and the following disclaimer.
+ *
+ *  Redistributions in binary form must reproduce the above copyright notice,
+ *  this list of conditions and the following disclaimer in the documentation
+ *  and/or other materials provided with the distribution.
+ *
+ *  Neither the name of fontviewer nor the names of its
+ *  contributors may be used to endorse or promote products derived from
+ *  this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.github.golovnin.fontviewer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Coverage of a list of fonts computed with word parallel set operations
+ * on their coverage bitsets. The list order is the fallback chain: a code
+ * point resolves to the first font covering it. Instances are immutable.
+ *
+ * @author Andrej Golovnin
+ */
+final class CoverageAnalysis {
+
+    private static final int CODE_POINTS = Character.MAX_CODE_POINT + 1;
+
+    // Assigned code points without surrogates and private use areas.
+    private static final BitSet ASSIGNED = computeAssigned();
+
+    private final String[] names;
+    private final BitSet[] coverages;
+    private final BitSet[] unique;
+    private final BitSet uncovered;
+    private final short[] fallback;
+
+    private CoverageAnalysis(String[] names, BitSet[] coverages, BitSet[] unique,
+                             BitSet uncovered, short[] fallback)
+    {
+        this.names = names;
+        this.coverages = coverages;
+        this.unique = unique;
+        this.uncovered = uncovered;
+        this.fallback = fallback;
+    }
+
+    /**
+     * Computes the analysis for the given names and coverages, which are
+     * expected in the fallback order and are not modified.
+     */
+    static CoverageAnalysis compute(String[] names, BitSet[] coverages) {
+        requireNonNull(names, "names may not be null");
+        requireNonNull(coverages, "coverages may not be null");
+        if (coverages.length > Short.MAX_VALUE) {
+            throw new IllegalArgumentException("Too many fonts: " + coverages.length);
+        }
+        int n = coverages.length;
+        BitSet seen = new BitSet(CODE_POINTS);
+        BitSet multi = new BitSet(CODE_POINTS);
+        BitSet overlap = new BitSet(CODE_POINTS);
+        short[] fallback = new short[CODE_POINTS];
+        Arrays.fill(fallback, (short) -1);
+        for (int i = 0; i < n; i++) {
+            BitSet coverage = coverages[i];
+            // multi |= seen & coverage
+            overlap.clear();
+            overlap.or(seen);
+            overlap.and(coverage);
+            multi.or(overlap);
+            // Code points covered for the first time resolve to this font.
+            BitSet fresh = (BitSet) coverage.clone();
+            fresh.andNot(seen);
+            for (int cp = fresh.nextSetBit(0); cp >= 0; cp = fresh.nextSetBit(cp + 1)) {
+                fallback[cp] = (short) i;
+            }
+            seen.or(coverage);
+        }
+        BitSet once = (BitSet) seen.clone();
+        once.andNot(multi);
+        BitSet[] unique = new BitSet[n];
+        for (int i = 0; i < n; i++) {
+            unique[i] = (BitSet) coverages[i].clone();
+            unique[i].and(once);
+        }
+        BitSet uncovered = (BitSet) ASSIGNED.clone();
+        uncovered.andNot(seen);
+        return new CoverageAnalysis(names.clone(), coverages.clone(), unique, uncovered, fallback);
+    }
+
+    /**
+     * Analyzes the fonts that have been loaded at least once, the coverage
+     * of the other fonts is not known yet.
+     */
+    static CoverageAnalysis compute(List<FontModel> models) {
+        List<String> names = new ArrayList<>();
+        List<BitSet> coverages = new ArrayList<>();
+        for (FontModel fm : models) {
+            BitSet coverage = fm.getCoverage();
+            if (coverage != null) {
+                names.add(fm.toString());
+                coverages.add(coverage);
+            }
+        }
+        return compute(names.toArray(new String[names.size()]),
+                       coverages.toArray(new BitSet[coverages.size()]));
+    }
+
+    int getFontCount() {
+        return names.length;
+    }
+
+    String getName(int index) {
+        return names[index];
+    }
+
+    int getCoveredCount(int index) {
+        return coverages[index].cardinality();
+    }
+
+    /**
+     * Returns the code points covered by the font at the given index only.
+     * The result must not be modified.
+     */
+    BitSet getUnique(int index) {
+        return unique[index];
+    }
+
+    /**
+     * Returns the assigned code points not covered by any font.
+     * The result must not be modified.
+     */
+    BitSet getUncovered() {
+        return uncovered;
+    }
+
+    /**
+     * Returns the index of the font the code point resolves to,
+     * or {@code -1} if no font covers it.
+     */
+    int resolve(int codePoint) {
+        return codePoint >= 0 && codePoint < CODE_POINTS ? fallback[codePoint] : -1;
+    }
+
+    /**
+     * Counts the code points per Unicode block in the order of the blocks.
+     */
+    static Map<Character.UnicodeBlock, Integer> countByBlock(BitSet codePoints) {
+        Map<Character.UnicodeBlock, Integer> counts = new LinkedHashMap<>();
+        for (int cp = codePoints.nextSetBit(0); cp >= 0; cp = codePoints.nextSetBit(cp + 1)) {
+            counts.merge(Character.UnicodeBlock.of(cp), 1, Integer::sum);
+        }
+        return counts;
+    }
+
+    /**
+     * Formats the ranges of the set, e.g. {@code U+0041-005A, U+00C0},
+     * and truncates the result after the given number of ranges.
+     */
+    static String formatRanges(BitSet codePoints, int maxRanges) {
+        StringBuilder sb = new StringBuilder();
+        int ranges = 0;
+        int start = codePoints.nextSetBit(0);
+        while (start >= 0) {
+            int end = codePoints.nextClearBit(start) - 1;
+            if (ranges == maxRanges) {
+                sb.append(", \u2026");
+                break;
+            }
+            if (ranges > 0) {
+                sb.append(", ");
+            }
+            sb.append(String.format("U+%04X", start));
+            if (end > start) {
+                sb.append(String.format("-%04X", end));
+            }
+            ranges++;
+            start = codePoints.nextSetBit(end + 1);
+        }
+        return sb.toString();
+    }
+
+    private static BitSet computeAssigned() {
+        BitSet assigned = new BitSet(CODE_POINTS);
+        for (int cp = 0; cp < CODE_POINTS; cp++) {
+            int type = Character.getType(cp);
+            if (   type != Character.UNASSIGNED
+                && type != Character.SURROGATE
+                && type != Character.PRIVATE_USE)
+            {
+                assigned.set(cp);
+            }
+        }
+        return assigned;
+    }
+
+}
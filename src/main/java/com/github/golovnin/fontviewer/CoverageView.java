@@ -0,0 +1,287 @@
+/*
+ * Copyright (c) 2015, Andrej Golovnin
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  Redistributions of source code must retain the above copyright notice, this
+ *  list of conditions and the following disclaimer.
+ *
+ *  Redistributions in binary form must reproduce the above copyright notice,
+ *  this list of conditions and the following disclaimer in the documentation
+ *  and/or other materials provided with the distribution.
+ *
+ *  Neither the name of fontviewer nor the names of its
+ *  contributors may be used to endorse or promote products derived from
+ *  this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.github.golovnin.fontviewer;
+
+import com.jgoodies.binding.list.SelectionInList;
+import com.jgoodies.forms.builder.FormBuilder;
+import com.jgoodies.forms.factories.Paddings;
+
+import javax.swing.*;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import javax.swing.event.ListDataEvent;
+import javax.swing.event.ListDataListener;
+import javax.swing.table.AbstractTableModel;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import java.beans.PropertyChangeEvent;
+import java.beans.PropertyChangeListener;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Supplier;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Shows the coverage of all loaded fonts, including the fonts hidden by the
+ * filter: code points no font covers, code points covered by a single font
+ * and the fallback resolution of a code point in the order of the font
+ * list. The analysis is recomputed when the font list changes or a font
+ * is loaded.
+ *
+ * @author Andrej Golovnin
+ */
+final class CoverageView {
+
+    private static final int MAX_RANGES = 8;
+
+    private final SelectionInList<FontModel> fonts;
+    private final Supplier<List<FontModel>> allFonts;
+    private final CoverageTableModel tableModel = new CoverageTableModel();
+    private final JLabel summaryLabel = new JLabel("Computing\u2026");
+    private final JTextArea uncoveredArea = new JTextArea(8, 40);
+    private final JTextField resolveField = new JTextField(10);
+    private final JLabel resolveLabel = new JLabel(" ");
+    private final ListDataListener fontsListener = new FontsListener();
+    private final PropertyChangeListener fontListener = this::fontChanged;
+
+    private CoverageAnalysis analysis;
+    private int generation;
+    // The fonts with a font listener and the coverages of the last computation
+    private List<FontModel> observedFonts = new ArrayList<>();
+    private Map<FontModel, BitSet> analyzedCoverages = new IdentityHashMap<>();
+
+    /**
+     * @param fonts    notifies about added and removed fonts
+     * @param allFonts returns all fonts in the order of the font list
+     */
+    CoverageView(SelectionInList<FontModel> fonts, Supplier<List<FontModel>> allFonts) {
+        this.fonts = requireNonNull(fonts, "fonts may not be null");
+        this.allFonts = requireNonNull(allFonts, "allFonts may not be null");
+    }
+
+    void show() {
+        JDialog dialog = new JDialog(JOptionPane.getRootFrame(), "Coverage");
+        dialog.setDefaultCloseOperation(WindowConstants.DISPOSE_ON_CLOSE);
+        dialog.setContentPane(createView());
+        dialog.pack();
+        dialog.setLocationRelativeTo(JOptionPane.getRootFrame());
+        fonts.addListDataListener(fontsListener);
+        dialog.addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosed(WindowEvent e) {
+                fonts.removeListDataListener(fontsListener);
+                observe(Collections.<FontModel>emptyList());
+            }
+        });
+        dialog.setVisible(true);
+        observe(new ArrayList<>(allFonts.get()));
+        recompute();
+    }
+
+    private JComponent createView() {
+        uncoveredArea.setEditable(false);
+        resolveField.getDocument().addDocumentListener(new DocumentListener() {
+            @Override
+            public void insertUpdate(DocumentEvent e) {
+                updateResolution();
+            }
+
+            @Override
+            public void removeUpdate(DocumentEvent e) {
+                updateResolution();
+            }
+
+            @Override
+            public void changedUpdate(DocumentEvent e) {
+                // Attribute changes do not affect the code point.
+            }
+        });
+
+        return FormBuilder.create()
+            .columns("p, $lcg, p, $lcg, f:0:g")
+            .rows("f:120dlu:g, $ug, p, $rg, f:80dlu:g, $ug, p")
+            .padding(Paddings.DIALOG)
+
+            .add(MainView.createScrollPane(new JTable(tableModel)))  .xyw(1, 1, 5)
+            .add(summaryLabel)                                      .xyw(1, 3, 5)
+            .add(MainView.createScrollPane(uncoveredArea))          .xyw(1, 5, 5)
+            .add("Resolve:")                                        .xy(1, 7)
+            .add(resolveField)                                      .xy(3, 7)
+            .add(resolveLabel)                                      .xy(5, 7)
+            .build();
+    }
+
+    // Fonts that are not loaded yet get their coverage later.
+    private void observe(List<FontModel> models) {
+        for (FontModel fm : observedFonts) {
+            fm.removePropertyChangeListener(fontListener);
+        }
+        observedFonts = models;
+        for (FontModel fm : observedFonts) {
+            fm.addPropertyChangeListener(fontListener);
+        }
+    }
+
+    private void fontChanged(PropertyChangeEvent evt) {
+        FontModel fm = (FontModel) evt.getSource();
+        if (fm.getCoverage() != analyzedCoverages.get(fm)) {
+            recompute();
+        }
+    }
+
+    private void recompute() {
+        int currentGeneration = ++generation;
+        List<FontModel> models = new ArrayList<>(allFonts.get());
+        analyzedCoverages = new IdentityHashMap<>();
+        for (FontModel fm : models) {
+            analyzedCoverages.put(fm, fm.getCoverage());
+        }
+        new SwingWorker<CoverageAnalysis, Void>() {
+            @Override
+            protected CoverageAnalysis doInBackground() {
+                return CoverageAnalysis.compute(models);
+            }
+
+            @Override
+            protected void done() {
+                // Results of superseded computations are dropped.
+                if (currentGeneration != generation) {
+                    return;
+                }
+                try {
+                    setAnalysis(get());
+                } catch (InterruptedException e) {
+                    summaryLabel.setText(e.toString());
+                } catch (ExecutionException e) {
+                    summaryLabel.setText(e.getCause().toString());
+                }
+            }
+        }.execute();
+    }
+
+    private void setAnalysis(CoverageAnalysis newAnalysis) {
+        analysis = newAnalysis;
+        tableModel.fireTableDataChanged();
+        int skippedCount = analyzedCoverages.size() - analysis.getFontCount();
+        summaryLabel.setText(String.format(
+                "%,d assigned code points are not covered by any of %,d fonts%s:",
+                analysis.getUncovered().cardinality(), analysis.getFontCount(),
+                skippedCount > 0 ? String.format(" (%,d never loaded fonts skipped)", skippedCount) : ""));
+        StringBuilder sb = new StringBuilder();
+        for (Map.Entry<Character.UnicodeBlock, Integer> e
+                : CoverageAnalysis.countByBlock(analysis.getUncovered()).entrySet())
+        {
+            sb.append(e.getKey()).append(": ").append(e.getValue()).append('\n');
+        }
+        uncoveredArea.setText(sb.toString());
+        uncoveredArea.setCaretPosition(0);
+        updateResolution();
+    }
+
+    private void updateResolution() {
+        int codePoint = GlyphSearch.parseCodePoint(resolveField.getText());
+        if (analysis == null || codePoint < 0) {
+            resolveLabel.setText(" ");
+            return;
+        }
+        int index = analysis.resolve(codePoint);
+        resolveLabel.setText(String.format("U+%04X \u2192 %s", codePoint,
+                index >= 0
+                    ? analysis.getName(index) + " (#" + (index + 1)
+                        + " in the fallback chain, which follows the font list)"
+                    : "not covered"));
+    }
+
+    private final class CoverageTableModel extends AbstractTableModel {
+
+        private final String[] columnNames = { "Font", "Covered", "Unique", "Unique ranges" };
+
+        @Override
+        public int getRowCount() {
+            return analysis != null ? analysis.getFontCount() : 0;
+        }
+
+        @Override
+        public int getColumnCount() {
+            return columnNames.length;
+        }
+
+        @Override
+        public String getColumnName(int column) {
+            return columnNames[column];
+        }
+
+        @Override
+        public Class<?> getColumnClass(int column) {
+            return column == 1 || column == 2 ? Integer.class : String.class;
+        }
+
+        @Override
+        public Object getValueAt(int row, int column) {
+            switch (column) {
+                case 0:  return analysis.getName(row);
+                case 1:  return analysis.getCoveredCount(row);
+                case 2:  return analysis.getUnique(row).cardinality();
+                default: return CoverageAnalysis.formatRanges(analysis.getUnique(row), MAX_RANGES);
+            }
+        }
+    }
+
+    private final class FontsListener implements ListDataListener {
+
+        @Override
+        public void intervalAdded(ListDataEvent e) {
+            update();
+        }
+
+        @Override
+        public void intervalRemoved(ListDataEvent e) {
+            update();
+        }
+
+        @Override
+        public void contentsChanged(ListDataEvent e) {
+            update();
+        }
+
+        private void update() {
+            observe(new ArrayList<>(allFonts.get()));
+            recompute();
+        }
+    }
+
+}
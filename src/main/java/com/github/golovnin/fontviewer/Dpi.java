@@ -0,0 +1,81 @@
+/*
+ * Copyright (c) 2015, Andrej Golovnin
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  Redistributions of source code must retain the above copyright notice, this
+ *  list of conditions and the following disclaimer.
+ *
+ *  Redistributions in binary form must reproduce the above copyright notice,
+ *  this list of conditions and the following disclaimer in the documentation
+ *  and/or other materials provided with the distribution.
+ *
+ *  Neither the name of fontviewer nor the names of its
+ *  contributors may be used to endorse or promote products derived from
+ *  this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.github.golovnin.fontviewer;
+
+import java.util.function.Function;
+
+import static com.github.golovnin.fontviewer.FontModel.*;
+
+/**
+ * @author Andrej Golovnin
+ */
+enum Dpi {
+
+    DPI_96 (96,  PROPERTY_FONT_96_DPI,  FontSnapshot::getFonts96dpi),
+    DPI_120(120, PROPERTY_FONT_120_DPI, FontSnapshot::getFonts120dpi),
+    DPI_144(144, PROPERTY_FONT_144_DPI, FontSnapshot::getFonts144dpi),
+    DPI_192(192, PROPERTY_FONT_192_DPI, FontSnapshot::getFonts192dpi);
+
+    private final int dpi;
+    private final String propertyName;
+    private final Function<FontSnapshot, Fonts> accessor;
+
+    Dpi(int dpi, String propertyName, Function<FontSnapshot, Fonts> accessor) {
+        this.dpi = dpi;
+        this.propertyName = propertyName;
+        this.accessor = accessor;
+    }
+
+    int getDpi() {
+        return dpi;
+    }
+
+    /**
+     * Returns the name of the {@link FontModel} property holding the fonts.
+     */
+    String getPropertyName() {
+        return propertyName;
+    }
+
+    float getScaleFactor() {
+        return dpi / 96.0f;
+    }
+
+    Fonts fontsOf(FontSnapshot snapshot) {
+        return accessor.apply(snapshot);
+    }
+
+    @Override
+    public String toString() {
+        return dpi + " dpi";
+    }
+
+}
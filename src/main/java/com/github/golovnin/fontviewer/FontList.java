@@ -0,0 +1,269 @@
+/*
+ * Copyright (c) 2015, Andrej Golovnin
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  Redistributions of source code must retain the above copyright notice, this
+ *  list of conditions and the following disclaimer.
+ *
+ *  Redistributions in binary form must reproduce the above copyright notice,
+ *  this list of conditions and the following disclaimer in the documentation
+ *  and/or other materials provided with the distribution.
+ *
+ *  Neither the name of fontviewer nor the names of its
+ *  contributors may be used to endorse or promote products derived from
+ *  this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.github.golovnin.fontviewer;
+
+import com.jgoodies.common.collect.ObservableList;
+
+import javax.swing.event.EventListenerList;
+import javax.swing.event.ListDataEvent;
+import javax.swing.event.ListDataListener;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * The list of fonts sorted by family, name and file, filtered by a query
+ * matching the family, the name or the file name. The list contains the
+ * fonts matching the filter only, see {@link #getAll()} for all fonts.
+ * <p>
+ * Sorting keys are computed once, when a font is added, so that filtering
+ * and inserting stay cheap for thousands of fonts. The order of the fonts
+ * is therefore not changed by reloading a font. Must be used on the EDT only.
+ *
+ * @author Andrej Golovnin
+ */
+final class FontList extends AbstractList<FontModel> implements ObservableList<FontModel> {
+
+    private final EventListenerList listeners = new EventListenerList();
+    // All fonts, sorted by their keys
+    private final List<FontModel> all = new ArrayList<>();
+    private final Map<FontModel, String> keys = new IdentityHashMap<>();
+    private List<FontModel> visible = new ArrayList<>();
+    private String[] terms = {};
+
+    /**
+     * Returns all fonts regardless of the filter in sort order.
+     */
+    List<FontModel> getAll() {
+        return Collections.unmodifiableList(all);
+    }
+
+    @Override
+    public FontModel get(int index) {
+        return visible.get(index);
+    }
+
+    @Override
+    public int size() {
+        return visible.size();
+    }
+
+    @Override
+    public FontModel getElementAt(int index) {
+        return get(index);
+    }
+
+    @Override
+    public int getSize() {
+        return size();
+    }
+
+    /**
+     * Inserts the font at its sort position.
+     */
+    @Override
+    public boolean add(FontModel fm) {
+        String key = insert(fm);
+        if (matches(key)) {
+            int index = upperBound(visible, key);
+            visible.add(index, fm);
+            fireIntervalAdded(index, index);
+        }
+        return true;
+    }
+
+    /**
+     * Inserts the fonts at their sort positions and updates the listeners
+     * with a few events only, see {@link #setFilter(String, FontModel)}.
+     */
+    void addAll(Collection<FontModel> models, FontModel anchor) {
+        List<FontModel> added = new ArrayList<>(models.size());
+        for (FontModel fm : models) {
+            keys.put(fm, keyOf(fm));
+            added.add(fm);
+        }
+        added.sort((fm1, fm2) -> keys.get(fm1).compareTo(keys.get(fm2)));
+        List<FontModel> merged = new ArrayList<>(all.size() + added.size());
+        int i = 0;
+        for (FontModel fm : added) {
+            String key = keys.get(fm);
+            while (i < all.size() && keys.get(all.get(i)).compareTo(key) <= 0) {
+                merged.add(all.get(i++));
+            }
+            merged.add(fm);
+        }
+        merged.addAll(all.subList(i, all.size()));
+        all.clear();
+        all.addAll(merged);
+        update(anchor);
+    }
+
+    @Override
+    public FontModel remove(int index) {
+        FontModel fm = visible.remove(index);
+        all.remove(fm);
+        keys.remove(fm);
+        fireIntervalRemoved(index, index);
+        return fm;
+    }
+
+    /**
+     * Shows only the fonts whose family, name or file name contain all
+     * whitespace separated terms of the filter, ignoring case.
+     * <p>
+     * The anchor, usually the selected font, is kept in the list while
+     * all other fonts are removed and added, so that a selection of it
+     * survives the change if it matches the new filter.
+     */
+    void setFilter(String filter, FontModel anchor) {
+        String trimmed = filter.trim().toLowerCase(Locale.ROOT);
+        terms = trimmed.isEmpty() ? new String[0] : trimmed.split("\\s+");
+        update(anchor);
+    }
+
+    private void update(FontModel anchor) {
+        List<FontModel> newVisible = new ArrayList<>();
+        for (FontModel fm : all) {
+            if (matches(keys.get(fm))) {
+                newVisible.add(fm);
+            }
+        }
+        List<FontModel> oldVisible = visible;
+        int oldIndex = anchor != null ? oldVisible.indexOf(anchor) : -1;
+        int newIndex = anchor != null ? newVisible.indexOf(anchor) : -1;
+        if (oldIndex < 0 || newIndex < 0) {
+            visible = new ArrayList<>();
+            if (!oldVisible.isEmpty()) {
+                fireIntervalRemoved(0, oldVisible.size() - 1);
+            }
+            visible = newVisible;
+            if (!newVisible.isEmpty()) {
+                fireIntervalAdded(0, newVisible.size() - 1);
+            }
+            return;
+        }
+        // Every intermediate state must match the fired events.
+        if (oldIndex > 0) {
+            visible = new ArrayList<>(oldVisible.subList(oldIndex, oldVisible.size()));
+            fireIntervalRemoved(0, oldIndex - 1);
+        }
+        if (visible.size() > 1) {
+            int last = visible.size() - 1;
+            visible = new ArrayList<>(Collections.singletonList(anchor));
+            fireIntervalRemoved(1, last);
+        }
+        if (newIndex > 0) {
+            visible = new ArrayList<>(newVisible.subList(0, newIndex + 1));
+            fireIntervalAdded(0, newIndex - 1);
+        }
+        if (newIndex < newVisible.size() - 1) {
+            visible = newVisible;
+            fireIntervalAdded(newIndex + 1, newVisible.size() - 1);
+        }
+        visible = newVisible;
+    }
+
+    private boolean matches(String key) {
+        for (String term : terms) {
+            if (!key.contains(term)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private String insert(FontModel fm) {
+        String key = keyOf(fm);
+        all.add(upperBound(all, key), fm);
+        keys.put(fm, key);
+        return key;
+    }
+
+    private String keyOf(FontModel fm) {
+        requireNonNull(fm, "fm may not be null");
+        if (keys.containsKey(fm)) {
+            throw new IllegalArgumentException("Font already added: " + fm);
+        }
+        // The separators sort before any printable character.
+        String family = fm.getFamily() != null ? fm.getFamily() : "";
+        return (family + '\u0001' + fm + '\u0001' + fm.getFile().getName())
+                .toLowerCase(Locale.ROOT);
+    }
+
+    // The index of the first font in the sorted list with a greater key
+    private int upperBound(List<FontModel> models, String key) {
+        int low = 0;
+        int high = models.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (keys.get(models.get(mid)).compareTo(key) <= 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    // ListModel
+
+    @Override
+    public void addListDataListener(ListDataListener l) {
+        listeners.add(ListDataListener.class, l);
+    }
+
+    @Override
+    public void removeListDataListener(ListDataListener l) {
+        listeners.remove(ListDataListener.class, l);
+    }
+
+    private void fireIntervalAdded(int index0, int index1) {
+        ListDataEvent event = new ListDataEvent(this, ListDataEvent.INTERVAL_ADDED, index0, index1);
+        for (ListDataListener l : listeners.getListeners(ListDataListener.class)) {
+            l.intervalAdded(event);
+        }
+    }
+
+    private void fireIntervalRemoved(int index0, int index1) {
+        ListDataEvent event = new ListDataEvent(this, ListDataEvent.INTERVAL_REMOVED, index0, index1);
+        for (ListDataListener l : listeners.getListeners(ListDataListener.class)) {
+            l.intervalRemoved(event);
+        }
+    }
+
+}
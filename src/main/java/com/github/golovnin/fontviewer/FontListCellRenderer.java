@@ -0,0 +1,69 @@
+/*
+ * Copyright (c) 2015, Andrej Golovnin
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  Redistributions of source code must retain the above copyright notice, this
+ *  list of conditions and the following disclaimer.
+ *
+ *  Redistributions in binary form must reproduce the above copyright notice,
+ *  this list of conditions and the following disclaimer in the documentation
+ *  and/or other materials provided with the distribution.
+ *
+ *  Neither the name of fontviewer nor the names of its
+ *  contributors may be used to endorse or promote products derived from
+ *  this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.github.golovnin.fontviewer;
+
+import javax.swing.DefaultListCellRenderer;
+import javax.swing.Icon;
+import javax.swing.JList;
+import javax.swing.SwingConstants;
+import java.awt.Component;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Shows the font name followed by a sample rendered in the font itself
+ * once the preview is ready. The name stays plain text, so that fonts
+ * whose sample is not readable, e.g. symbol fonts, can be told apart.
+ *
+ * @author Andrej Golovnin
+ */
+final class FontListCellRenderer extends DefaultListCellRenderer {
+
+    private final FontPreviewCache previews;
+
+    FontListCellRenderer(FontPreviewCache previews) {
+        this.previews = requireNonNull(previews, "previews may not be null");
+        setHorizontalTextPosition(SwingConstants.LEADING);
+    }
+
+    @Override
+    public Component getListCellRendererComponent(JList<?> list, Object value,
+        int index, boolean isSelected, boolean cellHasFocus)
+    {
+        super.getListCellRendererComponent(list, value, index, isSelected, cellHasFocus);
+        Icon preview = value instanceof FontModel
+                     ? previews.getPreview((FontModel) value)
+                     : null;
+        setIcon(preview);
+        return this;
+    }
+
+}
@@ -0,0 +1,219 @@
+/*
+ * Copyright (c) 2015, Andrej Golovnin
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  Redistributions of source code must retain the above copyright notice, this
+ *  list of conditions and the following disclaimer.
+ *
+ *  Redistributions in binary form must reproduce the above copyright notice,
+ *  this list of conditions and the following disclaimer in the documentation
+ *  and/or other materials provided with the distribution.
+ *
+ *  Neither the name of fontviewer nor the names of its
+ *  contributors may be used to endorse or promote products derived from
+ *  this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.github.golovnin.fontviewer;
+
+import com.jgoodies.binding.beans.Model;
+
+import java.beans.PropertyChangeListener;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Keeps the estimated footprint of all loaded fonts below a budget by
+ * evicting the least recently selected fonts. A payload shared by several
+ * fonts is counted once and freed when all of them are evicted. All methods
+ * must be called on the EDT.
+ *
+ * @author Andrej Golovnin
+ */
+final class FontMemoryManager extends Model {
+
+    public static final String PROPERTY_BUDGET         = "budget";
+    public static final String PROPERTY_FOOTPRINT      = "footprint";
+    public static final String PROPERTY_EVICTION_COUNT = "evictionCount";
+    public static final String PROPERTY_EVICTED_FONTS  = "evictedFonts";
+
+    private static final long MB = 1024L * 1024L;
+
+    // Iteration order is the access order, the least recently used first.
+    private final Map<FontModel, Boolean> models = new LinkedHashMap<>(16, 0.75f, true);
+    // What has been added to the footprint for each model and the number
+    // of models sharing each payload, so that the footprint is kept up to
+    // date without walking all models.
+    private final Map<FontModel, Usage> usages = new IdentityHashMap<>();
+    private final Map<FontPayload, Integer> payloadUsers = new IdentityHashMap<>();
+    private final PropertyChangeListener modelListener =
+            evt -> changed(() -> refresh((FontModel) evt.getSource()));
+    private final long budget;
+    private long footprint;
+    private int evictionCount;
+    private int evictedFonts;
+
+    FontMemoryManager() {
+        this(Long.getLong("fontviewer.memoryBudget", 256L) * MB);
+    }
+
+    FontMemoryManager(long budget) {
+        this.budget = budget;
+    }
+
+    public long getBudget() {
+        return budget;
+    }
+
+    public long getFootprint() {
+        return footprint;
+    }
+
+    public int getEvictionCount() {
+        return evictionCount;
+    }
+
+    public int getEvictedFonts() {
+        return evictedFonts;
+    }
+
+    public int getFontCount() {
+        return models.size();
+    }
+
+    void register(FontModel fm) {
+        requireNonNull(fm, "fm may not be null");
+        changed(() -> add(fm));
+    }
+
+    void registerAll(Collection<FontModel> fms) {
+        changed(() -> {
+            for (FontModel fm : fms) {
+                add(requireNonNull(fm, "fm may not be null"));
+            }
+        });
+    }
+
+    void unregister(FontModel fm) {
+        changed(() -> {
+            if (models.remove(fm) != null) {
+                fm.removePropertyChangeListener(modelListener);
+                unaccount(fm);
+            }
+        });
+    }
+
+    void touch(FontModel fm) {
+        if (fm != null) {
+            models.get(fm);
+        }
+    }
+
+    /**
+     * Evicts the least recently used fonts until the footprint fits into
+     * the budget. The given font is never evicted.
+     */
+    void enforceBudget(FontModel selected) {
+        changed(() -> {
+            Iterator<FontModel> it = models.keySet().iterator();
+            while (footprint > budget && it.hasNext()) {
+                FontModel fm = it.next();
+                if (fm == selected || fm.isEvicted()) {
+                    continue;
+                }
+                fm.evict();
+                // Nothing is freed while the payload is shared.
+                refresh(fm);
+                int oldEvictionCount = evictionCount;
+                evictionCount++;
+                firePropertyChange(PROPERTY_EVICTION_COUNT, oldEvictionCount, evictionCount);
+            }
+        });
+    }
+
+    // Runs the change and fires the changes of the footprint and the number
+    // of evicted fonts.
+    private void changed(Runnable change) {
+        long oldFootprint = footprint;
+        int oldEvictedFonts = evictedFonts;
+        change.run();
+        firePropertyChange(PROPERTY_FOOTPRINT, oldFootprint, footprint);
+        firePropertyChange(PROPERTY_EVICTED_FONTS, oldEvictedFonts, evictedFonts);
+    }
+
+    private void add(FontModel fm) {
+        if (models.put(fm, Boolean.TRUE) == null) {
+            fm.addPropertyChangeListener(modelListener);
+            account(fm);
+        } else {
+            refresh(fm);
+        }
+    }
+
+    // Loads and evictions replace the snapshot of a model.
+    private void refresh(FontModel fm) {
+        if (usages.containsKey(fm)) {
+            unaccount(fm);
+            account(fm);
+        }
+    }
+
+    private void account(FontModel fm) {
+        FontSnapshot snapshot = fm.getSnapshot();
+        FontPayload payload = snapshot.getPayload();
+        Usage usage = new Usage(payload, snapshot.getRetainedSize());
+        usages.put(fm, usage);
+        if (payload == null) {
+            footprint += usage.size;
+            evictedFonts++;
+        } else if (payloadUsers.merge(payload, 1, Integer::sum) == 1) {
+            footprint += usage.size;
+        }
+    }
+
+    private void unaccount(FontModel fm) {
+        Usage usage = usages.remove(fm);
+        if (usage == null) {
+            return;
+        }
+        if (usage.payload == null) {
+            footprint -= usage.size;
+            evictedFonts--;
+        } else if (payloadUsers.merge(usage.payload, -1, Integer::sum) == 0) {
+            payloadUsers.remove(usage.payload);
+            footprint -= usage.size;
+        }
+    }
+
+    private static final class Usage {
+
+        // null if the model is evicted
+        private final FontPayload payload;
+        private final long size;
+
+        Usage(FontPayload payload, long size) {
+            this.payload = payload;
+            this.size = size;
+        }
+    }
+
+}
@@ -42,8 +42,10 @@ import java.io.IOException;
 import java.lang.reflect.Field;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
-import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 import static java.util.Objects.requireNonNull;
 
@@ -61,60 +63,230 @@ public final class FontModel extends Model {
     public static final String PROPERTY_FORCE_GASP_HINT = "forceGaspHint";
 
     private final File file;
-    private Font defaultFont;
-    private Fonts fonts96dpi;
-    private Fonts fonts120dpi;
-    private Fonts fonts144dpi;
-    private Fonts fonts192dpi;
-    private List<String> glyphs;
+    private final FontPayloadCache payloads;
+    // Replaced as a whole, never modified
+    private final AtomicReference<FontSnapshot> snapshot = new AtomicReference<>(FontSnapshot.EMPTY);
+    // The number of the last load started
+    private final AtomicInteger loads = new AtomicInteger();
     private boolean forceGaspHint;
 
-    FontModel(File file) {
+    /**
+     * @param payloads shares the payload with the models of identical font files
+     */
+    FontModel(File file, FontPayloadCache payloads) {
         this.file = requireNonNull(file, "file may not be null");
+        this.payloads = requireNonNull(payloads, "payloads may not be null");
     }
 
-    void load() throws IOException, FontFormatException {
-        int size = UIManager.getFont("List.font").getSize();
-        Font newDefaultFont = Font.createFont(Font.TRUETYPE_FONT, file)
-                .deriveFont(Font.PLAIN, size);
-        dumpLoadedFont(newDefaultFont);
-        List<String> newGlyphs = new ArrayList<>(newDefaultFont.getNumGlyphs());
-        for (char c = 0; c < 0xFFFF; c++) {
-            if (newDefaultFont.canDisplay(c)) {
-                newGlyphs.add(String.valueOf(c));
+    /**
+     * Reads the names of the font from the font file without loading it,
+     * so that the model can be listed and sorted. The model stays evicted
+     * until it is expanded.
+     */
+    void loadNames() throws IOException {
+        FontNames names = FontNames.read(file);
+        snapshot.updateAndGet(s -> s.withNames(names.getFullName(), names.getFamily()));
+    }
+
+    /**
+     * Loads the font and publishes it as a new snapshot. The payload of
+     * a font file with the same content is reused if there is one. A load
+     * that has been superseded by a later one is abandoned and nothing
+     * is published.
+     *
+     * @return {@code false} if the load has been superseded
+     */
+    boolean load() throws IOException, FontFormatException {
+        return load(false);
+    }
+
+    /**
+     * Restores an evicted model. The glyph list is rebuilt from the retained
+     * coverage unless the font file has been modified since it was scanned.
+     *
+     * @return {@code false} if the load has been superseded
+     */
+    boolean expand() throws IOException, FontFormatException {
+        return load(true);
+    }
+
+    private boolean load(boolean reuseCoverage) throws IOException, FontFormatException {
+        int generation = loads.incrementAndGet();
+        FontSnapshot current = snapshot.get();
+        long newLastModified = file.lastModified();
+        FontPayload.Key key = FontPayload.Key.of(file);
+        FontPayload payload = payloads.acquire(key, file);
+        if (payload == null) {
+            Font newDefaultFont = createDefaultFont();
+            BitSet newCoverage = current.getCoverage();
+            if (!reuseCoverage || newCoverage == null || current.getLastModified() != newLastModified) {
+                dumpLoadedFont(newDefaultFont);
+                newCoverage = new BitSet(Character.MAX_CODE_POINT + 1);
+                for (int c = 0; c <= Character.MAX_CODE_POINT; c++) {
+                    if (c == Character.MIN_SURROGATE) {
+                        c = Character.MAX_SURROGATE;
+                    } else if (newDefaultFont.canDisplay(c)) {
+                        newCoverage.set(c);
+                    }
+                    if ((c & 0xFFFF) == 0xFFFF && loads.get() != generation) {
+                        return false;
+                    }
+                }
+                // Trims the bit set to the highest covered code point, most fonts
+                // cover the BMP only.
+                newCoverage = BitSet.valueOf(newCoverage.toLongArray());
+            }
+            if (loads.get() != generation) {
+                return false;
             }
+            payload = payloads.add(new FontPayload(key, file, newCoverage, newDefaultFont));
+        }
+        if (loads.get() != generation
+            || !publish(FontSnapshot.loaded(generation, newLastModified, payload)))
+        {
+            payloads.release(payload);
+            return false;
         }
-        this.defaultFont = newDefaultFont;
-        this.fonts96dpi = Fonts.for96dpi(newDefaultFont);
-        this.fonts120dpi = Fonts.for120dpi(newDefaultFont);
-        this.fonts144dpi = Fonts.for144dpi(newDefaultFont);
-        this.fonts192dpi = Fonts.for192dpi(newDefaultFont);
-        this.glyphs = newGlyphs;
         EventQueue.invokeLater(this::fireMultiplePropertiesChanged);
+        return true;
+    }
+
+    // A snapshot of a later load is never replaced by one of an earlier load.
+    // The published snapshot takes over the reference to its payload.
+    private boolean publish(FontSnapshot next) {
+        while (true) {
+            FontSnapshot current = snapshot.get();
+            if (current.getVersion() >= next.getVersion()) {
+                return false;
+            }
+            if (snapshot.compareAndSet(current, next)) {
+                releasePayload(current);
+                return true;
+            }
+        }
+    }
+
+    private void releasePayload(FontSnapshot replaced) {
+        if (replaced.getPayload() != null) {
+            payloads.release(replaced.getPayload());
+        }
+    }
+
+    /**
+     * Drops the glyph list and all fonts, so that only the file reference,
+     * the names and the coverage remain. The payload is freed unless it is
+     * shared with another model. Must be called on the EDT.
+     */
+    void evict() {
+        FontSnapshot current = snapshot.get();
+        if (current.isEvicted() || !snapshot.compareAndSet(current, current.evicted())) {
+            return;
+        }
+        releasePayload(current);
+        fireMultiplePropertiesChanged();
+    }
+
+    /**
+     * Evicts the model for good when it is removed. Loads still running
+     * are abandoned. Must be called on the EDT.
+     */
+    void dispose() {
+        int generation = loads.incrementAndGet();
+        FontSnapshot current = snapshot.get();
+        FontSnapshot next = current.evicted(generation);
+        if (!publish(next)) {
+            return;
+        }
+        if (!current.isEvicted()) {
+            fireMultiplePropertiesChanged();
+        }
+    }
+
+    boolean isEvicted() {
+        return snapshot.get().isEvicted();
+    }
+
+    /**
+     * Returns the current state of the model. Readers that need more than
+     * one property should use the same snapshot for all of them.
+     */
+    FontSnapshot getSnapshot() {
+        return snapshot.get();
+    }
+
+    /**
+     * Returns the estimated number of bytes retained by this model,
+     * including its payload even if the payload is shared.
+     */
+    long getRetainedSize() {
+        return snapshot.get().getRetainedSize();
+    }
+
+    /**
+     * Creates a new font from the file without changing the model.
+     */
+    Font createDefaultFont() throws IOException, FontFormatException {
+        int size = UIManager.getFont("List.font").getSize();
+        return Font.createFont(Font.TRUETYPE_FONT, file)
+                .deriveFont(Font.PLAIN, size);
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * Returns the family name or {@code null} if neither the names nor
+     * the font have been loaded yet.
+     */
+    String getFamily() {
+        return snapshot.get().getFamily();
+    }
+
+    /**
+     * Returns a number that changes whenever the font is (re)loaded.
+     */
+    int getVersion() {
+        return snapshot.get().getVersion();
     }
 
     public Font getDefaultFont() {
-        return defaultFont;
+        return snapshot.get().getDefaultFont();
     }
 
     public Fonts getFonts96dpi() {
-        return fonts96dpi;
+        return snapshot.get().getFonts96dpi();
     }
 
     public Fonts getFonts120dpi() {
-        return fonts120dpi;
+        return snapshot.get().getFonts120dpi();
     }
 
     public Fonts getFonts144dpi() {
-        return fonts144dpi;
+        return snapshot.get().getFonts144dpi();
     }
 
     public Fonts getFonts192dpi() {
-        return fonts192dpi;
+        return snapshot.get().getFonts192dpi();
     }
 
     public List<String> getGlyphs() {
-        return glyphs;
+        return snapshot.get().getGlyphs();
+    }
+
+    /**
+     * See {@link FontSnapshot#getCodePoints()}.
+     */
+    int[] getCodePoints() {
+        return snapshot.get().getCodePoints();
+    }
+
+    /**
+     * Returns the set of covered code points. It is retained when the model
+     * is evicted and must not be modified.
+     */
+    BitSet getCoverage() {
+        return snapshot.get().getCoverage();
     }
 
     public boolean isForceGaspHint() {
@@ -129,7 +301,8 @@ public final class FontModel extends Model {
 
     @Override
     public String toString() {
-        return defaultFont.getFontName();
+        String fontName = snapshot.get().getFontName();
+        return fontName != null ? fontName : file.getName();
     }
 
     private static void dumpLoadedFont(Font font) {
@@ -0,0 +1,167 @@
+/*
+ * Copyright (c) 2015, Andrej Golovnin
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  Redistributions of source code must retain the above copyright notice, this
+ *  list of conditions and the following disclaimer.
+ *
+ *  Redistributions in binary form must reproduce the above copyright notice,
+ *  this list of conditions and the following disclaimer in the documentation
+ *  and/or other materials provided with the distribution.
+ *
+ *  Neither the name of fontviewer nor the names of its
+ *  contributors may be used to endorse or promote products derived from
+ *  this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.github.golovnin.fontviewer;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads the family and the full name of a font from its name table
+ * without creating a {@link java.awt.Font}. This is cheap enough to be
+ * done for thousands of files.
+ *
+ * @author Andrej Golovnin
+ */
+final class FontNames {
+
+    private static final int TAG_TTCF = 0x74746366;
+    private static final int TAG_NAME = 0x6E616D65;
+
+    private static final int ID_FAMILY            = 1;
+    private static final int ID_SUBFAMILY         = 2;
+    private static final int ID_FULL_NAME         = 4;
+    private static final int ID_TYPOGRAPHIC_FAMILY = 16;
+
+    private static final int MAX_TABLE_SIZE = 1 << 20;
+
+    private final String family;
+    private final String fullName;
+
+    private FontNames(String family, String fullName) {
+        this.family = family;
+        this.fullName = fullName;
+    }
+
+    /**
+     * Returns the names of the first font in the file. Missing names are
+     * replaced by the file name.
+     */
+    static FontNames read(File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            ByteBuffer header = read(channel, 0, 12);
+            long fontOffset = 0;
+            if (header.getInt(0) == TAG_TTCF) {
+                fontOffset = read(channel, 12, 4).getInt(0) & 0xFFFFFFFFL;
+                header = read(channel, fontOffset, 12);
+            }
+            int numTables = header.getShort(4) & 0xFFFF;
+            ByteBuffer directory = read(channel, fontOffset + 12, numTables * 16);
+            for (int i = 0; i < numTables; i++) {
+                if (directory.getInt(i * 16) == TAG_NAME) {
+                    long offset = directory.getInt(i * 16 + 8) & 0xFFFFFFFFL;
+                    int length = directory.getInt(i * 16 + 12);
+                    if (length < 0 || length > MAX_TABLE_SIZE) {
+                        throw new IOException("Invalid name table length: " + length);
+                    }
+                    return parse(read(channel, offset, length), file.getName());
+                }
+            }
+        }
+        return new FontNames(file.getName(), file.getName());
+    }
+
+    String getFamily() {
+        return family;
+    }
+
+    String getFullName() {
+        return fullName;
+    }
+
+    private static FontNames parse(ByteBuffer table, String fallback) throws IOException {
+        int count = table.getShort(2) & 0xFFFF;
+        int stringOffset = table.getShort(4) & 0xFFFF;
+        if (6 + count * 12 > table.limit()) {
+            throw new IOException("Truncated name table");
+        }
+        String[] names = new String[ID_TYPOGRAPHIC_FAMILY + 1];
+        int[] ranks = new int[names.length];
+        for (int i = 0; i < count; i++) {
+            int record = 6 + i * 12;
+            int platform = table.getShort(record) & 0xFFFF;
+            int language = table.getShort(record + 4) & 0xFFFF;
+            int nameId = table.getShort(record + 6) & 0xFFFF;
+            int length = table.getShort(record + 8) & 0xFFFF;
+            int offset = stringOffset + (table.getShort(record + 10) & 0xFFFF);
+            int rank = rank(platform, language);
+            if (nameId >= names.length || rank <= ranks[nameId]
+                || offset + length > table.limit())
+            {
+                continue;
+            }
+            // Windows and Unicode names are UTF-16, Macintosh names are
+            // approximated by ISO-8859-1.
+            Charset charset = platform == 1 ? StandardCharsets.ISO_8859_1 : StandardCharsets.UTF_16BE;
+            byte[] bytes = new byte[length];
+            ((ByteBuffer) table.duplicate().position(offset)).get(bytes);
+            String name = new String(bytes, charset).trim();
+            if (!name.isEmpty()) {
+                names[nameId] = name;
+                ranks[nameId] = rank;
+            }
+        }
+        String family = names[ID_TYPOGRAPHIC_FAMILY] != null
+                      ? names[ID_TYPOGRAPHIC_FAMILY]
+                      : names[ID_FAMILY] != null ? names[ID_FAMILY] : fallback;
+        String fullName = names[ID_FULL_NAME];
+        if (fullName == null) {
+            fullName = names[ID_SUBFAMILY] != null ? family + " " + names[ID_SUBFAMILY] : family;
+        }
+        return new FontNames(family, fullName);
+    }
+
+    // English Windows names first, like Font.getFontName() in an English locale.
+    private static int rank(int platform, int language) {
+        switch (platform) {
+            case 3:  return language == 0x0409 ? 4 : 2;
+            case 0:  return 3;
+            case 1:  return language == 0 ? 1 : 0;
+            default: return 0;
+        }
+    }
+
+    private static ByteBuffer read(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Unexpected end of file");
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+}
@@ -0,0 +1,296 @@
+/*
+ * Copyright (c) 2015, Andrej Golovnin
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  Redistributions of source code must retain the above copyright notice, this
+ *  list of conditions and the following disclaimer.
+ *
+ *  Redistributions in binary form must reproduce the above copyright notice,
+ *  this list of conditions and the following disclaimer in the documentation
+ *  and/or other materials provided with the distribution.
+ *
+ *  Neither the name of fontviewer nor the names of its
+ *  contributors may be used to endorse or promote products derived from
+ *  this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.github.golovnin.fontviewer;
+
+import java.awt.Font;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * The immutable data derived from a font file: the fonts, the coverage and
+ * the glyph list. Font files with identical content share one payload,
+ * see {@link FontPayloadCache}.
+ *
+ * @author Andrej Golovnin
+ */
+final class FontPayload {
+
+    // Rough per-object costs used to estimate the retained size of a payload.
+    private static final int GLYPH_ENTRY_SIZE  = 64;
+    private static final int DERIVED_FONT_SIZE = 128;
+    private static final int FONT_COUNT        = 1 + 4 * 6;
+
+    private final Key key;
+    private final File file;
+    private final BitSet coverage;
+    private final int[] codePoints;
+    private final Font defaultFont;
+    private final Fonts fonts96dpi;
+    private final Fonts fonts120dpi;
+    private final Fonts fonts144dpi;
+    private final Fonts fonts192dpi;
+    private final List<String> glyphs;
+
+    /**
+     * The coverage must not be modified afterwards.
+     *
+     * @param file the file the payload has been loaded from
+     */
+    FontPayload(Key key, File file, BitSet coverage, Font defaultFont) {
+        this.key = requireNonNull(key, "key may not be null");
+        this.file = requireNonNull(file, "file may not be null");
+        this.coverage = requireNonNull(coverage, "coverage may not be null");
+        this.defaultFont = requireNonNull(defaultFont, "defaultFont may not be null");
+        this.codePoints = coverage.stream().toArray();
+        this.fonts96dpi = Fonts.for96dpi(defaultFont);
+        this.fonts120dpi = Fonts.for120dpi(defaultFont);
+        this.fonts144dpi = Fonts.for144dpi(defaultFont);
+        this.fonts192dpi = Fonts.for192dpi(defaultFont);
+        List<String> newGlyphs = new ArrayList<>(codePoints.length);
+        for (int c : codePoints) {
+            newGlyphs.add(new String(Character.toChars(c)));
+        }
+        this.glyphs = Collections.unmodifiableList(newGlyphs);
+    }
+
+    Key getKey() {
+        return key;
+    }
+
+    /**
+     * Returns the file the payload has been loaded from. Other files with
+     * the same key share the payload only if their content is identical.
+     */
+    File getFile() {
+        return file;
+    }
+
+    BitSet getCoverage() {
+        return coverage;
+    }
+
+    int[] getCodePoints() {
+        return codePoints;
+    }
+
+    Font getDefaultFont() {
+        return defaultFont;
+    }
+
+    Fonts getFonts96dpi() {
+        return fonts96dpi;
+    }
+
+    Fonts getFonts120dpi() {
+        return fonts120dpi;
+    }
+
+    Fonts getFonts144dpi() {
+        return fonts144dpi;
+    }
+
+    Fonts getFonts192dpi() {
+        return fonts192dpi;
+    }
+
+    List<String> getGlyphs() {
+        return glyphs;
+    }
+
+    /**
+     * Returns the estimated number of bytes retained by this payload.
+     * The font file size stands for the tables cached by the font itself.
+     */
+    long getRetainedSize() {
+        return coverage.size() / 8
+             + (long) glyphs.size() * (GLYPH_ENTRY_SIZE + 4)
+             + FONT_COUNT * DERIVED_FONT_SIZE
+             + key.length;
+    }
+
+    /**
+     * Identifies the content of a font file by its length and a 64-bit
+     * hash of its bytes.
+     */
+    static final class Key {
+
+        private static final int BUFFER_SIZE = 64 * 1024;
+        private static final long PRIME_1 = 0x9E3779B97F4A7C15L;
+        private static final long PRIME_2 = 0xC2B2AE3D27D4EB4FL;
+
+        private final long length;
+        private final long hash;
+
+        private Key(long length, long hash) {
+            this.length = length;
+            this.hash = hash;
+        }
+
+        /**
+         * Reads the file and hashes its content. Reading the file is
+         * much cheaper than creating a font from it and scanning its
+         * coverage, and the file is in the OS cache afterwards.
+         */
+        static Key of(File file) throws IOException {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            long length = 0;
+            long h = PRIME_2;
+            try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+                int n;
+                while ((n = channel.read(buffer)) >= 0) {
+                    length += n;
+                    buffer.flip();
+                    while (buffer.remaining() >= Long.BYTES) {
+                        h = mix(h, buffer.getLong());
+                    }
+                    buffer.compact();
+                }
+            }
+            // The last 0 to 7 bytes
+            buffer.flip();
+            long tail = 0;
+            for (int shift = 0; buffer.hasRemaining(); shift += 8) {
+                tail |= (buffer.get() & 0xFFL) << shift;
+            }
+            h = mix(h, tail);
+            return new Key(length, finish(h ^ length));
+        }
+
+        /**
+         * Parses the string representation of a key.
+         *
+         * @throws IllegalArgumentException if the string is not a key
+         */
+        static Key valueOf(String s) {
+            int colon = s.indexOf(':');
+            try {
+                if (colon == 16) {
+                    return new Key(Long.parseLong(s.substring(colon + 1)),
+                                   Long.parseUnsignedLong(s.substring(0, colon), 16));
+                }
+            } catch (NumberFormatException e) {
+                // Reported below
+            }
+            throw new IllegalArgumentException("Invalid key: " + s);
+        }
+
+        /**
+         * Compares the content of two files byte by byte. A key is a hash,
+         * files with the same key may still differ. Files that cannot be
+         * read are not identical.
+         */
+        static boolean sameContent(File a, File b) {
+            if (a.equals(b)) {
+                return true;
+            }
+            if (a.length() != b.length()) {
+                return false;
+            }
+            ByteBuffer bufferA = ByteBuffer.allocate(BUFFER_SIZE);
+            ByteBuffer bufferB = ByteBuffer.allocate(BUFFER_SIZE);
+            try (FileChannel channelA = FileChannel.open(a.toPath(), StandardOpenOption.READ);
+                 FileChannel channelB = FileChannel.open(b.toPath(), StandardOpenOption.READ))
+            {
+                while (true) {
+                    bufferA.clear();
+                    bufferB.clear();
+                    int n = readFully(channelA, bufferA);
+                    if (n != readFully(channelB, bufferB)) {
+                        return false;
+                    }
+                    if (n <= 0) {
+                        return true;
+                    }
+                    bufferA.flip();
+                    bufferB.flip();
+                    if (!bufferA.equals(bufferB)) {
+                        return false;
+                    }
+                }
+            } catch (IOException e) {
+                return false;
+            }
+        }
+
+        // Fills the buffer unless the end of the channel is reached first.
+        private static int readFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+            while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+                // Reads until the buffer is full
+            }
+            return buffer.position();
+        }
+
+        private static long mix(long h, long k) {
+            k *= PRIME_1;
+            k ^= k >>> 31;
+            h ^= k * PRIME_2;
+            return Long.rotateLeft(h, 27) * PRIME_1 + PRIME_2;
+        }
+
+        private static long finish(long h) {
+            h ^= h >>> 33;
+            h *= PRIME_2;
+            h ^= h >>> 29;
+            h *= PRIME_1;
+            return h ^ h >>> 32;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return length == other.length && hash == other.hash;
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(hash);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%016x:%d", hash, length);
+        }
+    }
+
+}
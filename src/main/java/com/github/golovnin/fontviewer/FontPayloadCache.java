@@ -0,0 +1,153 @@
+/*
+ * Copyright (c) 2015, Andrej Golovnin
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  Redistributions of source code must retain the above copyright notice, this
+ *  list of conditions and the following disclaimer.
+ *
+ *  Redistributions in binary form must reproduce the above copyright notice,
+ *  this list of conditions and the following disclaimer in the documentation
+ *  and/or other materials provided with the distribution.
+ *
+ *  Neither the name of fontviewer nor the names of its
+ *  contributors may be used to endorse or promote products derived from
+ *  this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.github.golovnin.fontviewer;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Shares the payloads of font files with identical content. Every holder
+ * of a payload owns a reference to it. A payload is dropped from the cache
+ * when its last reference is released, so that it can be collected.
+ * A payload is only shared after the content of the files has been
+ * compared, the key alone may collide. The methods are thread safe.
+ *
+ * @author Andrej Golovnin
+ */
+final class FontPayloadCache {
+
+    // Almost always a single entry per key, several only for collisions.
+    private final Map<FontPayload.Key, List<Entry>> entries = new HashMap<>();
+
+    /**
+     * Returns the payload with the given key and the same content as the
+     * file and acquires a reference to it, or {@code null} if there is none.
+     * The files are compared without holding the lock.
+     */
+    FontPayload acquire(FontPayload.Key key, File file) {
+        List<Entry> candidates;
+        synchronized (this) {
+            candidates = new ArrayList<>(entries.getOrDefault(key, Collections.emptyList()));
+        }
+        for (Entry entry : candidates) {
+            if (FontPayload.Key.sameContent(entry.payload.getFile(), file)) {
+                synchronized (this) {
+                    // Released in the meantime otherwise
+                    if (entry.references > 0) {
+                        entry.references++;
+                        return entry.payload;
+                    }
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Adds the payload and acquires a reference to it. If a payload with
+     * the same content has been added in the meantime, that payload is
+     * acquired and returned instead.
+     */
+    FontPayload add(FontPayload payload) {
+        requireNonNull(payload, "payload may not be null");
+        FontPayload shared = acquire(payload.getKey(), payload.getFile());
+        if (shared != null) {
+            return shared;
+        }
+        Entry entry = new Entry(payload);
+        entry.references++;
+        synchronized (this) {
+            entries.computeIfAbsent(payload.getKey(), key -> new ArrayList<>(1)).add(entry);
+        }
+        return payload;
+    }
+
+    /**
+     * Releases a reference acquired by {@link #acquire(FontPayload.Key, File)}
+     * or {@link #add(FontPayload)}.
+     */
+    synchronized void release(FontPayload payload) {
+        List<Entry> list = entries.get(payload.getKey());
+        Entry entry = list != null ? find(list, payload) : null;
+        if (entry == null) {
+            throw new IllegalStateException("Payload not acquired: " + payload.getKey());
+        }
+        if (--entry.references == 0) {
+            list.remove(entry);
+            if (list.isEmpty()) {
+                entries.remove(payload.getKey());
+            }
+        }
+    }
+
+    /**
+     * Returns the number of references to the payload, 0 if it is not cached.
+     */
+    synchronized int getReferences(FontPayload payload) {
+        List<Entry> list = entries.get(payload.getKey());
+        Entry entry = list != null ? find(list, payload) : null;
+        return entry != null ? entry.references : 0;
+    }
+
+    synchronized int size() {
+        int size = 0;
+        for (List<Entry> list : entries.values()) {
+            size += list.size();
+        }
+        return size;
+    }
+
+    private static Entry find(List<Entry> list, FontPayload payload) {
+        for (Entry entry : list) {
+            if (entry.payload == payload) {
+                return entry;
+            }
+        }
+        return null;
+    }
+
+    private static final class Entry {
+
+        private final FontPayload payload;
+        private int references;
+
+        Entry(FontPayload payload) {
+            this.payload = payload;
+        }
+    }
+
+}
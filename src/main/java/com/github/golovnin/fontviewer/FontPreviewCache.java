@@ -0,0 +1,196 @@
+/*
+ * Copyright (c) 2015, Andrej Golovnin
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  Redistributions of source code must retain the above copyright notice, this
+ *  list of conditions and the following disclaimer.
+ *
+ *  Redistributions in binary form must reproduce the above copyright notice,
+ *  this list of conditions and the following disclaimer in the documentation
+ *  and/or other materials provided with the distribution.
+ *
+ *  Neither the name of fontviewer nor the names of its
+ *  contributors may be used to endorse or promote products derived from
+ *  this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.github.golovnin.fontviewer;
+
+import javax.swing.Icon;
+import javax.swing.ImageIcon;
+import java.awt.Color;
+import java.awt.EventQueue;
+import java.awt.Font;
+import java.awt.FontFormatException;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.function.Consumer;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Renders samples of the fonts on a background thread and caches them
+ * per font version, so that a reload invalidates the sample. Fonts that have not been loaded yet are opened just for
+ * the sample. Only the most recently shown previews are retained and
+ * the most recently requested ones are rendered first, so that scrolling
+ * through thousands of fonts does not queue up work for entries that
+ * are no longer visible. Must be used on the EDT only.
+ *
+ * @author Andrej Golovnin
+ */
+final class FontPreviewCache {
+
+    static final float SAMPLE_SIZE = 16.0f;
+
+    private static final String PANGRAM = "Abc 123";
+    private static final int MAX_SAMPLE_LENGTH = 8;
+    private static final int MAX_WIDTH = 480;
+    private static final int MAX_PREVIEWS = 512;
+    private static final int MAX_PENDING = 64;
+
+    private final Map<FontModel, Preview> previews = new LinkedHashMap<FontModel, Preview>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<FontModel, Preview> eldest) {
+            return size() > MAX_PREVIEWS;
+        }
+    };
+    private final Set<FontModel> pending = new HashSet<>();
+    // Newest request first
+    private final BlockingDeque<Request> queue = new LinkedBlockingDeque<>();
+    private final Color foreground;
+    private final Consumer<FontModel> readyListener;
+
+    /**
+     * @param readyListener called on the EDT when the preview of a font is ready
+     */
+    FontPreviewCache(Color foreground, Consumer<FontModel> readyListener) {
+        this.foreground = requireNonNull(foreground, "foreground may not be null");
+        this.readyListener = requireNonNull(readyListener, "readyListener may not be null");
+        Thread t = new Thread(this::renderRequests, "font-previews");
+        t.setDaemon(true);
+        t.setPriority(Thread.MIN_PRIORITY);
+        t.start();
+    }
+
+    /**
+     * Returns the preview of the font or {@code null} if it is not ready yet.
+     * In the latter case the preview is rendered in the background.
+     */
+    Icon getPreview(FontModel fm) {
+        FontSnapshot snapshot = fm.getSnapshot();
+        Preview preview = previews.get(fm);
+        if (preview != null && preview.version == snapshot.getVersion()) {
+            return preview.icon;
+        }
+        Font font = snapshot.getDefaultFont();
+        // Evicted fonts keep their last preview until they are expanded.
+        if (font == null && preview != null) {
+            return preview.icon;
+        }
+        if (pending.add(fm)) {
+            queue.offerFirst(new Request(fm, snapshot));
+            while (queue.size() > MAX_PENDING) {
+                Request dropped = queue.pollLast();
+                if (dropped != null) {
+                    // Requested again when it is shown again.
+                    pending.remove(dropped.fm);
+                }
+            }
+        }
+        return preview != null ? preview.icon : null;
+    }
+
+    private void renderRequests() {
+        while (true) {
+            Request request;
+            try {
+                request = queue.takeFirst();
+            } catch (InterruptedException e) {
+                return;
+            }
+            Icon icon;
+            try {
+                Font font = request.snapshot.getDefaultFont();
+                if (font == null) {
+                    font = request.fm.createDefaultFont();
+                }
+                String sample = sampleText(font, request.snapshot.getCodePoints());
+                icon = new ImageIcon(render(font.deriveFont(SAMPLE_SIZE), sample));
+            } catch (IOException | FontFormatException | RuntimeException e) {
+                // Only the name is shown.
+                icon = null;
+            }
+            Icon preview = icon;
+            EventQueue.invokeLater(() -> {
+                pending.remove(request.fm);
+                previews.put(request.fm, new Preview(request.snapshot.getVersion(), preview));
+                readyListener.accept(request.fm);
+            });
+        }
+    }
+
+    private BufferedImage render(Font font, String sample) {
+        BufferedImage image = GlyphRenderer.render(font, sample, false, foreground, null);
+        return image.getWidth() > MAX_WIDTH
+             ? image.getSubimage(0, 0, MAX_WIDTH, image.getHeight())
+             : image;
+    }
+
+    // A pangram or the first covered code points, whichever the font
+    // can display.
+    private static String sampleText(Font font, int[] codePoints) {
+        if (font.canDisplayUpTo(PANGRAM) == -1) {
+            return PANGRAM;
+        }
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; codePoints != null && i < codePoints.length && i < MAX_SAMPLE_LENGTH; i++) {
+            if (!Character.isISOControl(codePoints[i]) && !Character.isWhitespace(codePoints[i])) {
+                sb.appendCodePoint(codePoints[i]);
+            }
+        }
+        return sb.toString();
+    }
+
+    private static final class Request {
+
+        final FontModel fm;
+        final FontSnapshot snapshot;
+
+        Request(FontModel fm, FontSnapshot snapshot) {
+            this.fm = fm;
+            this.snapshot = snapshot;
+        }
+    }
+
+    private static final class Preview {
+
+        final int version;
+        final Icon icon;
+
+        Preview(int version, Icon icon) {
+            this.version = version;
+            this.icon = icon;
+        }
+    }
+
+}
@@ -0,0 +1,191 @@
+/*
+ * Copyright (c) 2015, Andrej Golovnin
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  Redistributions of source code must retain the above copyright notice, this
+ *  list of conditions and the following disclaimer.
+ *
+ *  Redistributions in binary form must reproduce the above copyright notice,
+ *  this list of conditions and the following disclaimer in the documentation
+ *  and/or other materials provided with the distribution.
+ *
+ *  Neither the name of fontviewer nor the names of its
+ *  contributors may be used to endorse or promote products derived from
+ *  this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.github.golovnin.fontviewer;
+
+import java.awt.Font;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * The immutable state of a {@link FontModel}. A load builds a new snapshot
+ * completely before it is published, so that readers holding a snapshot
+ * never see a partially reloaded font. A loaded snapshot refers to the
+ * {@link FontPayload} shared by all fonts with the same content. An evicted
+ * snapshot retains the names, the coverage and the content key only.
+ *
+ * @author Andrej Golovnin
+ */
+final class FontSnapshot {
+
+    static final FontSnapshot EMPTY = new FontSnapshot(0, null, null, 0L, null, null, null);
+
+    private final int version;
+    private final String fontName;
+    private final String family;
+    private final long lastModified;
+    private final BitSet coverage;
+    private final FontPayload.Key contentKey;
+    private final FontPayload payload;
+
+    private FontSnapshot(int version, String fontName, String family, long lastModified,
+                         BitSet coverage, FontPayload.Key contentKey, FontPayload payload)
+    {
+        this.version = version;
+        this.fontName = fontName;
+        this.family = family;
+        this.lastModified = lastModified;
+        this.coverage = coverage;
+        this.contentKey = contentKey;
+        this.payload = payload;
+    }
+
+    /**
+     * Creates a loaded snapshot.
+     */
+    static FontSnapshot loaded(int version, long lastModified, FontPayload payload) {
+        Font defaultFont = payload.getDefaultFont();
+        return new FontSnapshot(version, defaultFont.getFontName(), defaultFont.getFamily(),
+                lastModified, payload.getCoverage(), payload.getKey(), payload);
+    }
+
+    /**
+     * Returns a copy of this snapshot with the given names.
+     */
+    FontSnapshot withNames(String newFontName, String newFamily) {
+        return new FontSnapshot(version, newFontName, newFamily, lastModified, coverage, contentKey, payload);
+    }
+
+    /**
+     * Returns a copy of this snapshot without the payload.
+     */
+    FontSnapshot evicted() {
+        return isEvicted() ? this : evicted(version);
+    }
+
+    /**
+     * Returns a copy of this snapshot without the payload and with the
+     * given version, so that it supersedes all loads started before.
+     */
+    FontSnapshot evicted(int newVersion) {
+        return new FontSnapshot(newVersion, fontName, family, lastModified, coverage, contentKey, null);
+    }
+
+    boolean isEvicted() {
+        return payload == null;
+    }
+
+    /**
+     * Returns the shared payload or {@code null} if this snapshot is evicted.
+     */
+    FontPayload getPayload() {
+        return payload;
+    }
+
+    /**
+     * Returns the estimated number of bytes retained by this snapshot,
+     * including its payload even if the payload is shared.
+     */
+    long getRetainedSize() {
+        if (payload != null) {
+            return payload.getRetainedSize();
+        }
+        return coverage != null ? coverage.size() / 8 : 0;
+    }
+
+    /**
+     * Returns the key of the content the coverage has been computed from,
+     * {@code null} if the font has never been loaded.
+     */
+    FontPayload.Key getContentKey() {
+        return contentKey;
+    }
+
+    /**
+     * Returns the number of the load that has built this snapshot,
+     * 0 if the font has never been loaded.
+     */
+    int getVersion() {
+        return version;
+    }
+
+    String getFontName() {
+        return fontName;
+    }
+
+    String getFamily() {
+        return family;
+    }
+
+    long getLastModified() {
+        return lastModified;
+    }
+
+    /**
+     * Returns the set of covered code points or {@code null} if the font
+     * has never been loaded. The set must not be modified.
+     */
+    BitSet getCoverage() {
+        return coverage;
+    }
+
+    /**
+     * Returns the covered code points in ascending order, in the same order
+     * as the glyph list. The array must not be modified.
+     */
+    int[] getCodePoints() {
+        return payload != null ? payload.getCodePoints() : null;
+    }
+
+    Font getDefaultFont() {
+        return payload != null ? payload.getDefaultFont() : null;
+    }
+
+    Fonts getFonts96dpi() {
+        return payload != null ? payload.getFonts96dpi() : null;
+    }
+
+    Fonts getFonts120dpi() {
+        return payload != null ? payload.getFonts120dpi() : null;
+    }
+
+    Fonts getFonts144dpi() {
+        return payload != null ? payload.getFonts144dpi() : null;
+    }
+
+    Fonts getFonts192dpi() {
+        return payload != null ? payload.getFonts192dpi() : null;
+    }
+
+    List<String> getGlyphs() {
+        return payload != null ? payload.getGlyphs() : null;
+    }
+
+}
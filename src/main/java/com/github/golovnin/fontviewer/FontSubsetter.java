@@ -0,0 +1,659 @@
+/*
+ * Copyright (c) 2015, Andrej Golovnin
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  Redistributions of source code must retain the above copyright notice, this
+ *  list of conditions and the following disclaimer.
+ *
+ *  Redistributions in binary form must reproduce the above copyright notice,
+ *  this list of conditions and the following disclaimer in the documentation
+ *  and/or other materials provided with the distribution.
+ *
+ *  Neither the name of fontviewer nor the names of its
+ *  contributors may be used to endorse or promote products derived from
+ *  this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.github.golovnin.fontviewer;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.BitSet;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Writes a TrueType font with the glyphs of the given code points only.
+ * Composite glyphs keep the glyphs they are composed of. The glyphs are
+ * renumbered, glyf, loca, cmap, hmtx, hhea, maxp and post are rebuilt,
+ * the hinting tables (cvt, fpgm, prep, gasp) and OS/2 and name are copied.
+ * Tables that refer to glyph IDs and are not rebuilt, e.g. GSUB, GPOS and
+ * kern, are dropped. The source file is memory-mapped and only the tables
+ * and glyphs needed are read.
+ *
+ * @author Andrej Golovnin
+ */
+final class FontSubsetter {
+
+    private static final int TAG_TTCF = 0x74746366;
+    private static final int TAG_CFF  = tag("CFF ");
+    private static final int TAG_CMAP = tag("cmap");
+    private static final int TAG_GLYF = tag("glyf");
+    private static final int TAG_HEAD = tag("head");
+    private static final int TAG_HHEA = tag("hhea");
+    private static final int TAG_HMTX = tag("hmtx");
+    private static final int TAG_LOCA = tag("loca");
+    private static final int TAG_MAXP = tag("maxp");
+    private static final int TAG_OS2  = tag("OS/2");
+    private static final int TAG_POST = tag("post");
+
+    // Copied as they are, they do not refer to glyph IDs.
+    private static final int[] COPIED_TABLES = {
+        tag("cvt "), tag("fpgm"), tag("prep"), tag("gasp"), tag("name"), tag("VDMX")
+    };
+
+    // Composite glyph flags
+    private static final int ARG_1_AND_2_ARE_WORDS    = 0x0001;
+    private static final int WE_HAVE_A_SCALE          = 0x0008;
+    private static final int MORE_COMPONENTS          = 0x0020;
+    private static final int WE_HAVE_AN_X_AND_Y_SCALE = 0x0040;
+    private static final int WE_HAVE_A_TWO_BY_TWO     = 0x0080;
+
+    private static final int MAX_SHORT_LOCA_OFFSET = 0x1FFFE;
+    private static final int MAX_CMAP4_LENGTH      = 0xFFFF;
+    private static final long CHECKSUM_MAGIC       = 0xB1B0AFBAL;
+
+    private final Map<Integer, ByteBuffer> tables = new TreeMap<>();
+    private final int numGlyphs;
+    private final int numberOfHMetrics;
+    private final boolean longLoca;
+    private final ByteBuffer cmap;
+
+    private FontSubsetter(ByteBuffer source) throws IOException {
+        int fontOffset = source.getInt(0) == TAG_TTCF ? source.getInt(12) : 0;
+        int numTables = source.getShort(fontOffset + 4) & 0xFFFF;
+        for (int i = 0; i < numTables; i++) {
+            int record = fontOffset + 12 + i * 16;
+            int offset = source.getInt(record + 8);
+            int length = source.getInt(record + 12);
+            if (offset < 0 || length < 0 || offset > source.limit() - length) {
+                throw new IOException("Table out of bounds: " + tagName(source.getInt(record)));
+            }
+            tables.put(source.getInt(record), slice(source, offset, length));
+        }
+        if (!tables.containsKey(TAG_GLYF) && tables.containsKey(TAG_CFF)) {
+            throw new IOException("Only fonts with TrueType outlines can be subset");
+        }
+        for (int tag : new int[] { TAG_HEAD, TAG_HHEA, TAG_MAXP, TAG_HMTX, TAG_LOCA, TAG_GLYF, TAG_CMAP }) {
+            if (!tables.containsKey(tag)) {
+                throw new IOException("Missing table: " + tagName(tag));
+            }
+        }
+        this.numGlyphs = tables.get(TAG_MAXP).getShort(4) & 0xFFFF;
+        this.numberOfHMetrics = tables.get(TAG_HHEA).getShort(34) & 0xFFFF;
+        this.longLoca = tables.get(TAG_HEAD).getShort(50) != 0;
+        this.cmap = findUnicodeCmap(tables.get(TAG_CMAP));
+        if (numberOfHMetrics == 0 || numberOfHMetrics > numGlyphs) {
+            throw new IOException("Invalid number of horizontal metrics: " + numberOfHMetrics);
+        }
+    }
+
+    /**
+     * Subsets the first font in the file to the given code points.
+     * Code points the font does not map to a glyph are ignored.
+     */
+    static Subset subset(File file, BitSet codePoints) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            ByteBuffer source = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            try {
+                return new FontSubsetter(source).subset(codePoints);
+            } catch (IndexOutOfBoundsException e) {
+                throw new IOException("Corrupt font file: " + file, e);
+            }
+        }
+    }
+
+    private Subset subset(BitSet codePoints) throws IOException {
+        // The glyphs to keep, .notdef always
+        boolean[] keep = new boolean[numGlyphs];
+        keep[0] = true;
+        int[] stack = new int[numGlyphs];
+        int top = 0;
+        int[] mapped = new int[codePoints.cardinality()];
+        int[] mappedGlyphs = new int[mapped.length];
+        int mappedCount = 0;
+        for (int cp = codePoints.nextSetBit(0); cp >= 0; cp = codePoints.nextSetBit(cp + 1)) {
+            int glyph = lookup(cp);
+            if (glyph <= 0 || glyph >= numGlyphs) {
+                continue;
+            }
+            mapped[mappedCount] = cp;
+            mappedGlyphs[mappedCount++] = glyph;
+            if (!keep[glyph]) {
+                keep[glyph] = true;
+                stack[top++] = glyph;
+            }
+        }
+        while (top > 0) {
+            ByteBuffer glyph = glyph(stack[--top]);
+            int pos = componentsStart(glyph);
+            while (pos >= 0) {
+                int component = glyph.getShort(pos + 2) & 0xFFFF;
+                if (component < numGlyphs && !keep[component]) {
+                    keep[component] = true;
+                    stack[top++] = component;
+                }
+                pos = nextComponent(glyph, pos);
+            }
+        }
+
+        int[] newGlyphIds = new int[numGlyphs];
+        int count = 0;
+        for (int g = 0; g < numGlyphs; g++) {
+            newGlyphIds[g] = keep[g] ? count++ : -1;
+        }
+        int[] oldGlyphIds = new int[count];
+        for (int g = 0; g < numGlyphs; g++) {
+            if (keep[g]) {
+                oldGlyphIds[newGlyphIds[g]] = g;
+            }
+        }
+        for (int i = 0; i < mappedCount; i++) {
+            mappedGlyphs[i] = newGlyphIds[mappedGlyphs[i]];
+        }
+
+        Map<Integer, ByteBuffer> out = new TreeMap<>();
+        boolean newLongLoca = writeGlyphs(oldGlyphIds, newGlyphIds, out);
+        int newNumberOfHMetrics = writeMetrics(oldGlyphIds, out);
+
+        ByteBuffer head = copy(tables.get(TAG_HEAD));
+        head.putInt(8, 0);
+        head.putShort(50, (short) (newLongLoca ? 1 : 0));
+        out.put(TAG_HEAD, head);
+        ByteBuffer hhea = copy(tables.get(TAG_HHEA));
+        hhea.putShort(34, (short) newNumberOfHMetrics);
+        out.put(TAG_HHEA, hhea);
+        ByteBuffer maxp = copy(tables.get(TAG_MAXP));
+        maxp.putShort(4, (short) count);
+        out.put(TAG_MAXP, maxp);
+        out.put(TAG_POST, writePost());
+        out.put(TAG_CMAP, writeCmap(mapped, mappedGlyphs, mappedCount));
+        ByteBuffer os2 = tables.get(TAG_OS2);
+        if (os2 != null) {
+            os2 = copy(os2);
+            if (os2.limit() >= 68 && mappedCount > 0) {
+                os2.putShort(64, (short) Math.min(mapped[0], 0xFFFF));
+                os2.putShort(66, (short) Math.min(mapped[mappedCount - 1], 0xFFFF));
+            }
+            out.put(TAG_OS2, os2);
+        }
+        for (int tag : COPIED_TABLES) {
+            ByteBuffer table = tables.get(tag);
+            if (table != null) {
+                out.put(tag, table.duplicate());
+            }
+        }
+        return new Subset(writeFont(out), count, mappedCount);
+    }
+
+    private boolean writeGlyphs(int[] oldGlyphIds, int[] newGlyphIds, Map<Integer, ByteBuffer> out)
+        throws IOException
+    {
+        int size = 0;
+        for (int g : oldGlyphIds) {
+            size += pad(glyph(g).limit());
+        }
+        boolean newLongLoca = size > MAX_SHORT_LOCA_OFFSET;
+        ByteBuffer glyf = ByteBuffer.allocate(size);
+        ByteBuffer loca = ByteBuffer.allocate((oldGlyphIds.length + 1) * (newLongLoca ? 4 : 2));
+        for (int g : oldGlyphIds) {
+            putLocaOffset(loca, glyf.position(), newLongLoca);
+            int start = glyf.position();
+            ByteBuffer glyph = glyph(g);
+            glyf.put(glyph.duplicate());
+            // Composite glyphs refer to the renumbered glyphs.
+            int pos = componentsStart(glyph);
+            while (pos >= 0) {
+                int component = glyph.getShort(pos + 2) & 0xFFFF;
+                glyf.putShort(start + pos + 2, (short) (component < newGlyphIds.length ? newGlyphIds[component] : 0));
+                pos = nextComponent(glyph, pos);
+            }
+            glyf.position(start + pad(glyph.limit()));
+        }
+        putLocaOffset(loca, glyf.position(), newLongLoca);
+        out.put(TAG_GLYF, (ByteBuffer) glyf.flip());
+        out.put(TAG_LOCA, (ByteBuffer) loca.flip());
+        return newLongLoca;
+    }
+
+    private static void putLocaOffset(ByteBuffer loca, int offset, boolean longLoca) {
+        if (longLoca) {
+            loca.putInt(offset);
+        } else {
+            loca.putShort((short) (offset / 2));
+        }
+    }
+
+    // Returns the new number of horizontal metrics.
+    private int writeMetrics(int[] oldGlyphIds, Map<Integer, ByteBuffer> out) {
+        ByteBuffer hmtx = tables.get(TAG_HMTX);
+        int count = oldGlyphIds.length;
+        short[] advances = new short[count];
+        short[] bearings = new short[count];
+        for (int i = 0; i < count; i++) {
+            int g = oldGlyphIds[i];
+            int metric = Math.min(g, numberOfHMetrics - 1);
+            advances[i] = hmtx.getShort(metric * 4);
+            bearings[i] = g < numberOfHMetrics
+                        ? hmtx.getShort(g * 4 + 2)
+                        : hmtx.getShort(numberOfHMetrics * 4 + (g - numberOfHMetrics) * 2);
+        }
+        // The trailing glyphs with the same advance share the last metric.
+        int newNumberOfHMetrics = count;
+        while (newNumberOfHMetrics > 1 && advances[newNumberOfHMetrics - 1] == advances[newNumberOfHMetrics - 2]) {
+            newNumberOfHMetrics--;
+        }
+        ByteBuffer newHmtx = ByteBuffer.allocate(newNumberOfHMetrics * 4 + (count - newNumberOfHMetrics) * 2);
+        for (int i = 0; i < count; i++) {
+            if (i < newNumberOfHMetrics) {
+                newHmtx.putShort(advances[i]);
+            }
+            newHmtx.putShort(bearings[i]);
+        }
+        out.put(TAG_HMTX, (ByteBuffer) newHmtx.flip());
+        return newNumberOfHMetrics;
+    }
+
+    // Format 3 has no glyph names, which would have to be renumbered.
+    private ByteBuffer writePost() {
+        ByteBuffer post = ByteBuffer.allocate(32);
+        ByteBuffer source = tables.get(TAG_POST);
+        if (source != null && source.limit() >= 32) {
+            post.put(slice(source, 0, 32));
+        }
+        post.putInt(0, 0x00030000);
+        post.rewind();
+        return post;
+    }
+
+    /**
+     * Writes a format 4 subtable for the BMP and a format 12 subtable if
+     * there are supplementary code points or too many BMP code points for
+     * format 4.
+     */
+    private static ByteBuffer writeCmap(int[] codePoints, int[] glyphs, int count) {
+        ByteBuffer format4 = writeCmapFormat4(codePoints, glyphs, count);
+        boolean supplementary = count > 0 && codePoints[count - 1] > 0xFFFF;
+        ByteBuffer format12 = format4 == null || supplementary
+                            ? writeCmapFormat12(codePoints, glyphs, count)
+                            : null;
+        int numTables = (format4 != null ? 1 : 0) + (format12 != null ? 1 : 0);
+        int offset = 4 + numTables * 8;
+        ByteBuffer cmap = ByteBuffer.allocate(offset
+                + (format4 != null ? format4.limit() : 0)
+                + (format12 != null ? format12.limit() : 0));
+        cmap.putShort((short) 0);
+        cmap.putShort((short) numTables);
+        if (format4 != null) {
+            cmap.putShort((short) 3).putShort((short) 1).putInt(offset);
+            offset += format4.limit();
+        }
+        if (format12 != null) {
+            cmap.putShort((short) 3).putShort((short) 10).putInt(offset);
+        }
+        if (format4 != null) {
+            cmap.put(format4);
+        }
+        if (format12 != null) {
+            cmap.put(format12);
+        }
+        return (ByteBuffer) cmap.flip();
+    }
+
+    // Returns null if the subtable would exceed the 16 bit length.
+    private static ByteBuffer writeCmapFormat4(int[] codePoints, int[] glyphs, int count) {
+        // Segments of consecutive code points. A segment whose glyphs are
+        // consecutive too is mapped by its delta, any other by glyphIdArray.
+        int bmp = 0;
+        while (bmp < count && codePoints[bmp] < 0xFFFF) {
+            bmp++;
+        }
+        int[] starts = new int[bmp + 1];
+        int[] ends = new int[bmp + 1];
+        boolean[] deltas = new boolean[bmp + 1];
+        int segCount = 0;
+        int glyphIdArrayLength = 0;
+        for (int i = 0; i < bmp; ) {
+            int j = i + 1;
+            boolean delta = true;
+            while (j < bmp && codePoints[j] == codePoints[j - 1] + 1) {
+                delta &= glyphs[j] - codePoints[j] == glyphs[i] - codePoints[i];
+                j++;
+            }
+            starts[segCount] = i;
+            ends[segCount] = j;
+            deltas[segCount++] = delta;
+            if (!delta) {
+                glyphIdArrayLength += j - i;
+            }
+            i = j;
+        }
+        segCount++;  // The final 0xFFFF segment
+        int length = 16 + segCount * 8 + glyphIdArrayLength * 2;
+        if (length > MAX_CMAP4_LENGTH) {
+            return null;
+        }
+        int searchRange = 2 * Integer.highestOneBit(segCount);
+        ByteBuffer t = ByteBuffer.allocate(length);
+        t.putShort((short) 4);
+        t.putShort((short) length);
+        t.putShort((short) 0);
+        t.putShort((short) (segCount * 2));
+        t.putShort((short) searchRange);
+        t.putShort((short) Integer.numberOfTrailingZeros(searchRange / 2));
+        t.putShort((short) (segCount * 2 - searchRange));
+        for (int s = 0; s < segCount - 1; s++) {
+            t.putShort((short) codePoints[ends[s] - 1]);
+        }
+        t.putShort((short) 0xFFFF);
+        t.putShort((short) 0);
+        for (int s = 0; s < segCount - 1; s++) {
+            t.putShort((short) codePoints[starts[s]]);
+        }
+        t.putShort((short) 0xFFFF);
+        for (int s = 0; s < segCount - 1; s++) {
+            t.putShort((short) (deltas[s] ? glyphs[starts[s]] - codePoints[starts[s]] : 0));
+        }
+        t.putShort((short) 1);
+        int glyphIndex = 0;
+        for (int s = 0; s < segCount; s++) {
+            if (s < segCount - 1 && !deltas[s]) {
+                // Relative to the position of this entry
+                t.putShort((short) (2 * (segCount - s) + 2 * glyphIndex));
+                glyphIndex += ends[s] - starts[s];
+            } else {
+                t.putShort((short) 0);
+            }
+        }
+        for (int s = 0; s < segCount - 1; s++) {
+            if (!deltas[s]) {
+                for (int i = starts[s]; i < ends[s]; i++) {
+                    t.putShort((short) glyphs[i]);
+                }
+            }
+        }
+        return (ByteBuffer) t.flip();
+    }
+
+    private static ByteBuffer writeCmapFormat12(int[] codePoints, int[] glyphs, int count) {
+        int groups = 0;
+        for (int i = 0; i < count; i++) {
+            if (i == 0 || codePoints[i] != codePoints[i - 1] + 1 || glyphs[i] != glyphs[i - 1] + 1) {
+                groups++;
+            }
+        }
+        ByteBuffer t = ByteBuffer.allocate(16 + groups * 12);
+        t.putShort((short) 12);
+        t.putShort((short) 0);
+        t.putInt(t.capacity());
+        t.putInt(0);
+        t.putInt(groups);
+        for (int i = 0; i < count; ) {
+            int j = i + 1;
+            while (j < count && codePoints[j] == codePoints[j - 1] + 1 && glyphs[j] == glyphs[j - 1] + 1) {
+                j++;
+            }
+            t.putInt(codePoints[i]).putInt(codePoints[j - 1]).putInt(glyphs[i]);
+            i = j;
+        }
+        return (ByteBuffer) t.flip();
+    }
+
+    private static byte[] writeFont(Map<Integer, ByteBuffer> tables) {
+        int numTables = tables.size();
+        int size = 12 + numTables * 16;
+        for (ByteBuffer table : tables.values()) {
+            size += pad(table.limit());
+        }
+        ByteBuffer font = ByteBuffer.allocate(size);
+        int searchRange = 16 * Integer.highestOneBit(numTables);
+        font.putInt(0x00010000);
+        font.putShort((short) numTables);
+        font.putShort((short) searchRange);
+        font.putShort((short) Integer.numberOfTrailingZeros(searchRange / 16));
+        font.putShort((short) (numTables * 16 - searchRange));
+        int offset = 12 + numTables * 16;
+        int headOffset = 0;
+        // TreeMap sorts the tags in ascending order as required.
+        for (Map.Entry<Integer, ByteBuffer> entry : tables.entrySet()) {
+            ByteBuffer table = entry.getValue();
+            int length = table.limit();
+            font.putInt(entry.getKey());
+            font.putInt((int) checksum(table, 0, length));
+            font.putInt(offset);
+            font.putInt(length);
+            ((ByteBuffer) font.duplicate().position(offset)).put(table.duplicate());
+            if (entry.getKey() == TAG_HEAD) {
+                headOffset = offset;
+            }
+            offset += pad(length);
+        }
+        font.putInt(headOffset + 8, (int) (CHECKSUM_MAGIC - checksum(font, 0, size)));
+        return font.array();
+    }
+
+    private static long checksum(ByteBuffer buffer, int offset, int length) {
+        long sum = 0;
+        int end = offset + (length & ~3);
+        for (int i = offset; i < end; i += 4) {
+            sum += buffer.getInt(i) & 0xFFFFFFFFL;
+        }
+        int tail = 0;
+        for (int i = end, shift = 24; i < offset + length; i++, shift -= 8) {
+            tail |= (buffer.get(i) & 0xFF) << shift;
+        }
+        return (sum + (tail & 0xFFFFFFFFL)) & 0xFFFFFFFFL;
+    }
+
+    private ByteBuffer glyph(int g) throws IOException {
+        ByteBuffer loca = tables.get(TAG_LOCA);
+        ByteBuffer glyf = tables.get(TAG_GLYF);
+        int start = longLoca ? loca.getInt(g * 4) : (loca.getShort(g * 2) & 0xFFFF) * 2;
+        int end = longLoca ? loca.getInt(g * 4 + 4) : (loca.getShort(g * 2 + 2) & 0xFFFF) * 2;
+        if (start < 0 || end < start || end > glyf.limit()) {
+            throw new IOException("Invalid glyph location: " + g);
+        }
+        return slice(glyf, start, end - start);
+    }
+
+    // Returns the position of the first component or -1 if the glyph
+    // is not a composite glyph.
+    private static int componentsStart(ByteBuffer glyph) {
+        return glyph.limit() >= 14 && glyph.getShort(0) < 0 ? 10 : -1;
+    }
+
+    private static int nextComponent(ByteBuffer glyph, int pos) throws IOException {
+        int flags = glyph.getShort(pos) & 0xFFFF;
+        if ((flags & MORE_COMPONENTS) == 0) {
+            return -1;
+        }
+        pos += 4 + ((flags & ARG_1_AND_2_ARE_WORDS) != 0 ? 4 : 2);
+        if ((flags & WE_HAVE_A_SCALE) != 0) {
+            pos += 2;
+        } else if ((flags & WE_HAVE_AN_X_AND_Y_SCALE) != 0) {
+            pos += 4;
+        } else if ((flags & WE_HAVE_A_TWO_BY_TWO) != 0) {
+            pos += 8;
+        }
+        if (pos + 4 > glyph.limit()) {
+            throw new IOException("Truncated composite glyph");
+        }
+        return pos;
+    }
+
+    // Prefers a subtable covering all planes.
+    private static ByteBuffer findUnicodeCmap(ByteBuffer cmap) throws IOException {
+        int numTables = cmap.getShort(2) & 0xFFFF;
+        ByteBuffer best = null;
+        int bestRank = 0;
+        for (int i = 0; i < numTables; i++) {
+            int record = 4 + i * 8;
+            int platform = cmap.getShort(record) & 0xFFFF;
+            int encoding = cmap.getShort(record + 2) & 0xFFFF;
+            int offset = cmap.getInt(record + 4);
+            if (offset < 0 || offset > cmap.limit() - 4) {
+                continue;
+            }
+            boolean unicode = platform == 0 || (platform == 3 && (encoding == 1 || encoding == 10));
+            int format = cmap.getShort(offset) & 0xFFFF;
+            int rank = !unicode ? 0 : format == 12 ? 2 : format == 4 ? 1 : 0;
+            if (rank > bestRank) {
+                int length = format == 12 ? cmap.getInt(offset + 4) : cmap.getShort(offset + 2) & 0xFFFF;
+                if (length >= 0 && length <= cmap.limit() - offset) {
+                    best = slice(cmap, offset, length);
+                    bestRank = rank;
+                }
+            }
+        }
+        if (best == null) {
+            throw new IOException("No Unicode cmap of format 4 or 12");
+        }
+        return best;
+    }
+
+    private int lookup(int cp) {
+        return cmap.getShort(0) == 12 ? lookupFormat12(cp) : lookupFormat4(cp);
+    }
+
+    private int lookupFormat4(int cp) {
+        if (cp > 0xFFFF) {
+            return 0;
+        }
+        int segCount = (cmap.getShort(6) & 0xFFFF) / 2;
+        int low = 0;
+        int high = segCount - 1;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if ((cmap.getShort(14 + mid * 2) & 0xFFFF) < cp) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        int start = cmap.getShort(16 + segCount * 2 + low * 2) & 0xFFFF;
+        if (cp < start || (cmap.getShort(14 + low * 2) & 0xFFFF) < cp) {
+            return 0;
+        }
+        int delta = cmap.getShort(16 + segCount * 4 + low * 2);
+        int rangeOffsetPos = 16 + segCount * 6 + low * 2;
+        int rangeOffset = cmap.getShort(rangeOffsetPos) & 0xFFFF;
+        if (rangeOffset == 0) {
+            return (cp + delta) & 0xFFFF;
+        }
+        int pos = rangeOffsetPos + rangeOffset + 2 * (cp - start);
+        if (pos + 2 > cmap.limit()) {
+            return 0;
+        }
+        int glyph = cmap.getShort(pos) & 0xFFFF;
+        return glyph != 0 ? (glyph + delta) & 0xFFFF : 0;
+    }
+
+    private int lookupFormat12(int cp) {
+        int groups = cmap.getInt(12);
+        int low = 0;
+        int high = groups - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int group = 16 + mid * 12;
+            if (cp < cmap.getInt(group)) {
+                high = mid - 1;
+            } else if (cp > cmap.getInt(group + 4)) {
+                low = mid + 1;
+            } else {
+                return cmap.getInt(group + 8) + cp - cmap.getInt(group);
+            }
+        }
+        return 0;
+    }
+
+    private static ByteBuffer slice(ByteBuffer buffer, int offset, int length) {
+        return ((ByteBuffer) buffer.duplicate().position(offset).limit(offset + length)).slice();
+    }
+
+    private static ByteBuffer copy(ByteBuffer table) {
+        ByteBuffer copy = ByteBuffer.allocate(table.limit());
+        copy.put(table.duplicate());
+        copy.rewind();
+        return copy;
+    }
+
+    private static int pad(int length) {
+        return (length + 3) & ~3;
+    }
+
+    private static int tag(String name) {
+        return name.charAt(0) << 24 | name.charAt(1) << 16 | name.charAt(2) << 8 | name.charAt(3);
+    }
+
+    private static String tagName(int tag) {
+        return new String(new char[] {
+            (char) (tag >>> 24), (char) (tag >>> 16 & 0xFF), (char) (tag >>> 8 & 0xFF), (char) (tag & 0xFF)
+        });
+    }
+
+    /**
+     * A subset font file.
+     */
+    static final class Subset {
+
+        private final byte[] data;
+        private final int glyphCount;
+        private final int codePointCount;
+
+        Subset(byte[] data, int glyphCount, int codePointCount) {
+            this.data = data;
+            this.glyphCount = glyphCount;
+            this.codePointCount = codePointCount;
+        }
+
+        /**
+         * Returns the content of the font file. The array must not be modified.
+         */
+        byte[] getData() {
+            return data;
+        }
+
+        /**
+         * Returns the number of glyphs including .notdef and the glyphs
+         * of composite glyphs.
+         */
+        int getGlyphCount() {
+            return glyphCount;
+        }
+
+        /**
+         * Returns the number of code points mapped by the subset.
+         */
+        int getCodePointCount() {
+            return codePointCount;
+        }
+    }
+
+}
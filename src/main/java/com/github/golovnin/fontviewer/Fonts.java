@@ -55,6 +55,10 @@ public final class Fonts extends Model {
     public static final String PROPERTY_FONT_32x32   = "font32x32";
     public static final String PROPERTY_FONT_48x48   = "font48x48";
 
+    // Nominal box sizes in pixels at 96 dpi, in the order of toArray().
+    static final int[]    NOMINAL_SIZES = { 10, 12, 16, 24, 32, 48 };
+    static final String[] SIZE_NAMES    = { "10x10", "default", "16x16", "24x24", "32x32", "48x48" };
+
     private final Font font10x10;
     private final Font fontDefault;
     private final Font font16x16;
@@ -89,6 +93,10 @@ public final class Fonts extends Model {
         return forScaleFactor(font, SCALE_FACTOR_192_DPI);
     }
 
+    static Fonts forDpi(Dpi dpi, Font font) {
+        return forScaleFactor(font, dpi.getScaleFactor());
+    }
+
     private static Fonts forScaleFactor(Font font, float scaleFactor) {
         return new Fonts(
             font.deriveFont(Font.PLAIN, 10 * scaleFactor),
@@ -124,4 +132,10 @@ public final class Fonts extends Model {
         return font48x48;
     }
 
+    Font[] toArray() {
+        return new Font[] {
+            font10x10, fontDefault, font16x16, font24x24, font32x32, font48x48
+        };
+    }
+
 }
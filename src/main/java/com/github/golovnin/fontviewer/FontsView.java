@@ -55,14 +55,23 @@ final class FontsView {
 
     private final ValueModel forceGaspHintHolder;
     private final ValueModel glyphHolder;
+    private final ValueModel glyphCodeHolder;
     private final PresentationModel<Fonts> model;
+    private final GlyphImageCache imageCache;
 
+    /**
+     * @param glyphCodeHolder holds the glyph code to show instead of the
+     *        glyph in the {@code glyphHolder}, or {@code null}
+     */
     FontsView(ValueModel forceGaspHintHolder, ValueModel glyphHolder,
-              PresentationModel<Fonts> model)
+              ValueModel glyphCodeHolder, PresentationModel<Fonts> model,
+              GlyphImageCache imageCache)
     {
         this.forceGaspHintHolder = requireNonNull(forceGaspHintHolder, "forceGaspHintHolder may not be null");
         this.glyphHolder = requireNonNull(glyphHolder, "glyphHolder may not be null");
+        this.glyphCodeHolder = requireNonNull(glyphCodeHolder, "glyphCodeHolder may not be null");
         this.model = requireNonNull(model, "model may not be null");
+        this.imageCache = requireNonNull(imageCache, "imageCache may not be null");
     }
 
     JComponent createView() {
@@ -100,10 +109,18 @@ final class FontsView {
     }
 
     private JComponent createGlyphLabel(String fontPropertyName) {
-        JLabel l = new GlyphLabel(forceGaspHintHolder);
+        GlyphLabel l = new GlyphLabel(forceGaspHintHolder);
+        // The colors of the prefetched renderings
+        l.setOpaque(true);
+        l.setBackground(UIManager.getColor("List.background"));
+        l.setForeground(UIManager.getColor("Label.foreground"));
+        l.setImageCache(imageCache);
         l.setHorizontalAlignment(SwingConstants.CENTER);
         l.setVerticalAlignment(SwingConstants.BOTTOM);
         Bindings.bind(l, glyphHolder);
+        // GlyphLabel is package private, a reflective binding cannot access it.
+        glyphCodeHolder.addValueChangeListener(evt -> l.setGlyphCode((Integer) evt.getNewValue()));
+        l.setGlyphCode((Integer) glyphCodeHolder.getValue());
         connectAndUpdate(model.getModel(fontPropertyName), l, "font");
         return l;
     }
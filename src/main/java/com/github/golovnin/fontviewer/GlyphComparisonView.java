@@ -0,0 +1,333 @@
+/*
+ * Copyright (c) 2015, Andrej Golovnin
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  Redistributions of source code must retain the above copyright notice, this
+ *  list of conditions and the following disclaimer.
+ *
+ *  Redistributions in binary form must reproduce the above copyright notice,
+ *  this list of conditions and the following disclaimer in the documentation
+ *  and/or other materials provided with the distribution.
+ *
+ *  Neither the name of fontviewer nor the names of its
+ *  contributors may be used to endorse or promote products derived from
+ *  this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.github.golovnin.fontviewer;
+
+import com.github.golovnin.fontviewer.GlyphStripRenderer.Strip;
+import com.jgoodies.binding.list.SelectionInList;
+import com.jgoodies.binding.value.ValueModel;
+import com.jgoodies.forms.builder.FormBuilder;
+import com.jgoodies.forms.factories.Paddings;
+
+import javax.swing.JComboBox;
+import javax.swing.JComponent;
+import javax.swing.JLabel;
+import javax.swing.Scrollable;
+import javax.swing.ToolTipManager;
+import javax.swing.UIManager;
+import javax.swing.event.ListDataEvent;
+import javax.swing.event.ListDataListener;
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.FontMetrics;
+import java.awt.Graphics;
+import java.awt.Insets;
+import java.awt.Rectangle;
+import java.awt.event.HierarchyEvent;
+import java.awt.event.MouseEvent;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Shows the selected glyph in all fonts that have been loaded at least once
+ * at a chosen size and DPI factor, see {@link GlyphStripRenderer}.
+ *
+ * @author Andrej Golovnin
+ */
+final class GlyphComparisonView {
+
+    private static final int DEFAULT_SIZE_INDEX = 4;
+
+    private final ValueModel forceGaspHintHolder;
+    private final ValueModel glyphHolder;
+    private final ValueModel defaultFontHolder;
+    private final SelectionInList<FontModel> fontListModel;
+    private final Supplier<List<FontModel>> allFonts;
+
+    /**
+     * @param defaultFontHolder changes when the selected font is (re)loaded
+     * @param fontListModel     notifies about added and removed fonts
+     * @param allFonts          returns all fonts in the order of the font list
+     */
+    GlyphComparisonView(ValueModel forceGaspHintHolder, ValueModel glyphHolder,
+                        ValueModel defaultFontHolder, SelectionInList<FontModel> fontListModel,
+                        Supplier<List<FontModel>> allFonts)
+    {
+        this.forceGaspHintHolder = requireNonNull(forceGaspHintHolder, "forceGaspHintHolder may not be null");
+        this.glyphHolder = requireNonNull(glyphHolder, "glyphHolder may not be null");
+        this.defaultFontHolder = requireNonNull(defaultFontHolder, "defaultFontHolder may not be null");
+        this.fontListModel = requireNonNull(fontListModel, "fontListModel may not be null");
+        this.allFonts = requireNonNull(allFonts, "allFonts may not be null");
+    }
+
+    JComponent createView() {
+        JComboBox<String> sizeBox = new JComboBox<>(Fonts.SIZE_NAMES);
+        sizeBox.setSelectedIndex(DEFAULT_SIZE_INDEX);
+        JComboBox<Dpi> dpiBox = new JComboBox<>(Dpi.values());
+        JLabel statusLabel = new JLabel();
+        GridPanel panel = new GridPanel(statusLabel);
+
+        Runnable updater = () -> panel.update(sizeBox.getSelectedIndex(), (Dpi) dpiBox.getSelectedItem());
+        sizeBox.addActionListener(e -> updater.run());
+        dpiBox.addActionListener(e -> updater.run());
+        forceGaspHintHolder.addValueChangeListener(evt -> updater.run());
+        glyphHolder.addValueChangeListener(evt -> updater.run());
+        defaultFontHolder.addValueChangeListener(evt -> updater.run());
+        fontListModel.addListDataListener(new ListDataListener() {
+            @Override
+            public void intervalAdded(ListDataEvent e) {
+                updater.run();
+            }
+
+            @Override
+            public void intervalRemoved(ListDataEvent e) {
+                updater.run();
+            }
+
+            @Override
+            public void contentsChanged(ListDataEvent e) {
+                updater.run();
+            }
+        });
+        // Nothing is rendered while the view is hidden.
+        panel.addHierarchyListener(e -> {
+            if ((e.getChangeFlags() & HierarchyEvent.SHOWING_CHANGED) != 0 && panel.isShowing()) {
+                updater.run();
+            }
+        });
+        updater.run();
+
+        return FormBuilder.create()
+            .columns("p, $lcg, p, $ug, p, $lcg, p, $ug, f:0:g")
+            .rows("p, $rg, f:0:g")
+            .background(UIManager.getColor("List.background"))
+            .opaque(true)
+            .padding(Paddings.DIALOG)
+
+            .add("Size:")                            .xy(1, 1)
+            .add(sizeBox)                            .xy(3, 1)
+            .add("DPI:")                             .xy(5, 1)
+            .add(dpiBox)                             .xy(7, 1)
+            .add(statusLabel)                        .xy(9, 1)
+            .add(MainView.createScrollPane(panel))   .xyw(1, 3, 9)
+            .build();
+    }
+
+    private final class GridPanel extends JComponent implements Scrollable {
+
+        private static final int GAP = 8;
+
+        private final JLabel statusLabel;
+        private final GlyphStripRenderer renderer;
+        private Strip strip;
+
+        GridPanel(JLabel statusLabel) {
+            this.statusLabel = statusLabel;
+            setOpaque(true);
+            setBackground(UIManager.getColor("List.background"));
+            setForeground(UIManager.getColor("List.foreground"));
+            setFont(UIManager.getFont("Label.font"));
+            renderer = new GlyphStripRenderer(getForeground(), getBackground(), updated -> {
+                if (updated == strip) {
+                    updateStatus();
+                    repaint();
+                }
+            });
+            ToolTipManager.sharedInstance().registerComponent(this);
+        }
+
+        void update(int sizeIndex, Dpi dpi) {
+            String glyph = (String) glyphHolder.getValue();
+            if (!isShowing() || glyph == null || glyph.isEmpty()) {
+                return;
+            }
+            List<FontModel> fonts = new ArrayList<>();
+            for (FontModel fm : allFonts.get()) {
+                if (fm.getCoverage() != null) {
+                    fonts.add(fm);
+                }
+            }
+            strip = renderer.request(glyph.codePointAt(0), sizeIndex, dpi,
+                    Boolean.TRUE.equals(forceGaspHintHolder.getValue()), fonts);
+            updateStatus();
+            revalidate();
+            repaint();
+        }
+
+        private void updateStatus() {
+            int missing = 0;
+            int pending = 0;
+            for (int i = 0; i < strip.getFonts().size(); i++) {
+                if (strip.getState(i) == Strip.MISSING) {
+                    missing++;
+                } else if (strip.getState(i) == Strip.PENDING) {
+                    pending++;
+                }
+            }
+            statusLabel.setText(String.format("U+%04X in %d fonts, %d missing%s",
+                    strip.getCodePoint(), strip.getFonts().size(), missing,
+                    pending > 0 ? ", " + pending + " rendering\u2026" : ""));
+        }
+
+        private int getCellWidth() {
+            return strip != null ? Math.max(strip.getCellSize(), 48) + GAP : 1;
+        }
+
+        private int getCellHeight() {
+            return strip != null ? strip.getCellSize() + getFontMetrics(getFont()).getHeight() + GAP : 1;
+        }
+
+        private int getColumns() {
+            Insets insets = getInsets();
+            return Math.max(1, (getWidth() - insets.left - insets.right) / getCellWidth());
+        }
+
+        private int indexAt(int x, int y) {
+            if (strip == null) {
+                return -1;
+            }
+            Insets insets = getInsets();
+            int column = (x - insets.left) / getCellWidth();
+            int row = (y - insets.top) / getCellHeight();
+            int index = row * getColumns() + column;
+            return x >= insets.left && column < getColumns() && index < strip.getFonts().size() ? index : -1;
+        }
+
+        @Override
+        public String getToolTipText(MouseEvent e) {
+            int index = indexAt(e.getX(), e.getY());
+            if (index < 0) {
+                return null;
+            }
+            FontModel fm = strip.getFonts().get(index);
+            String state = strip.getState(index) == Strip.MISSING ? " (missing)"
+                         : strip.getState(index) == Strip.FAILED ? " (failed to open)"
+                         : "";
+            return fm + state + " - " + fm.getFile();
+        }
+
+        @Override
+        public Dimension getPreferredSize() {
+            Insets insets = getInsets();
+            int count = strip != null ? strip.getFonts().size() : 0;
+            int columns = getWidth() > 0 ? getColumns() : Math.max(1, Math.min(count, 8));
+            int rows = (count + columns - 1) / columns;
+            return new Dimension(insets.left + insets.right + columns * getCellWidth(),
+                                 insets.top + insets.bottom + rows * getCellHeight());
+        }
+
+        @Override
+        protected void paintComponent(Graphics g) {
+            g.setColor(getBackground());
+            g.fillRect(0, 0, getWidth(), getHeight());
+            if (strip == null) {
+                return;
+            }
+            Insets insets = getInsets();
+            FontMetrics fm = getFontMetrics(getFont());
+            g.setFont(getFont());
+            Rectangle clip = g.getClipBounds();
+            int columns = getColumns();
+            int cellSize = strip.getCellSize();
+            int cellWidth = getCellWidth();
+            int cellHeight = getCellHeight();
+            Color marker = UIManager.getColor("Label.disabledForeground");
+            for (int i = 0; i < strip.getFonts().size(); i++) {
+                int x = insets.left + (i % columns) * cellWidth;
+                int y = insets.top + (i / columns) * cellHeight;
+                if (clip != null && !clip.intersects(x, y, cellWidth, cellHeight)) {
+                    continue;
+                }
+                int glyphX = x + (cellWidth - GAP - cellSize) / 2;
+                switch (strip.getState(i)) {
+                    case Strip.RENDERED:
+                        g.drawImage(strip.getImage(),
+                                glyphX, y, glyphX + cellSize, y + cellSize,
+                                i * cellSize, 0, (i + 1) * cellSize, cellSize, null);
+                        break;
+                    case Strip.PENDING:
+                        break;
+                    default:
+                        // Missing or failed, crossed out
+                        g.setColor(strip.getState(i) == Strip.FAILED ? Color.RED : marker);
+                        g.drawRect(glyphX, y, cellSize - 1, cellSize - 1);
+                        g.drawLine(glyphX, y, glyphX + cellSize - 1, y + cellSize - 1);
+                        g.drawLine(glyphX, y + cellSize - 1, glyphX + cellSize - 1, y);
+                        break;
+                }
+                g.setColor(strip.getState(i) == Strip.MISSING ? marker : getForeground());
+                String label = clipText(fm, strip.getFonts().get(i).toString(), cellWidth - GAP);
+                g.drawString(label, x + (cellWidth - GAP - fm.stringWidth(label)) / 2,
+                        y + cellSize + fm.getAscent());
+            }
+        }
+
+        private String clipText(FontMetrics fm, String text, int width) {
+            if (fm.stringWidth(text) <= width) {
+                return text;
+            }
+            String ellipsis = "\u2026";
+            int end = text.length();
+            while (end > 0 && fm.stringWidth(text.substring(0, end)) + fm.stringWidth(ellipsis) > width) {
+                end--;
+            }
+            return text.substring(0, end) + ellipsis;
+        }
+
+        @Override
+        public Dimension getPreferredScrollableViewportSize() {
+            return getPreferredSize();
+        }
+
+        @Override
+        public int getScrollableUnitIncrement(Rectangle visibleRect, int orientation, int direction) {
+            return 16;
+        }
+
+        @Override
+        public int getScrollableBlockIncrement(Rectangle visibleRect, int orientation, int direction) {
+            return visibleRect.height;
+        }
+
+        @Override
+        public boolean getScrollableTracksViewportWidth() {
+            return true;
+        }
+
+        @Override
+        public boolean getScrollableTracksViewportHeight() {
+            return false;
+        }
+    }
+
+}
@@ -0,0 +1,142 @@
+/*
+ * Copyright (c) 2015, Andrej Golovnin
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  Redistributions of source code must retain the above copyright notice, this
+ *  list of conditions and the following disclaimer.
+ *
+ *  Redistributions in binary form must reproduce the above copyright notice,
+ *  this list of conditions and the following disclaimer in the documentation
+ *  and/or other materials provided with the distribution.
+ *
+ *  Neither the name of fontviewer nor the names of its
+ *  contributors may be used to endorse or promote products derived from
+ *  this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.github.golovnin.fontviewer;
+
+import com.github.golovnin.fontviewer.GlyphRenderer.Rendering;
+
+import java.awt.Color;
+import java.awt.Font;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * A thread safe LRU cache of glyph renderings made by {@link GlyphRenderer},
+ * bounded by the total number of pixel bytes. Fonts are compared by
+ * identity, so that the renderings of a reloaded font are not reused.
+ * A rendering is either of a text or, if the text is {@code null},
+ * of a glyph code.
+ *
+ * @author Andrej Golovnin
+ */
+final class GlyphImageCache {
+
+    private final Map<Key, Rendering> entries = new LinkedHashMap<>(256, 0.75f, true);
+    private final long maxBytes;
+    private long bytes;
+
+    GlyphImageCache(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    synchronized Rendering get(Font font, String text, int glyphCode, boolean forceGaspHint,
+                               Color foreground, Color background)
+    {
+        return entries.get(new Key(font, text, glyphCode, forceGaspHint, foreground, background));
+    }
+
+    synchronized boolean contains(Font font, String text, int glyphCode, boolean forceGaspHint,
+                                  Color foreground, Color background)
+    {
+        return entries.containsKey(new Key(font, text, glyphCode, forceGaspHint, foreground, background));
+    }
+
+    synchronized void put(Font font, String text, int glyphCode, boolean forceGaspHint,
+                          Color foreground, Color background, Rendering rendering)
+    {
+        long size = sizeOf(rendering);
+        if (size > maxBytes) {
+            return;
+        }
+        Key key = new Key(font, text, glyphCode, forceGaspHint, foreground, background);
+        Rendering old = entries.put(key, rendering);
+        bytes += size - (old != null ? sizeOf(old) : 0);
+        Iterator<Rendering> it = entries.values().iterator();
+        while (bytes > maxBytes && it.hasNext()) {
+            bytes -= sizeOf(it.next());
+            it.remove();
+        }
+    }
+
+    synchronized long getBytes() {
+        return bytes;
+    }
+
+    private static long sizeOf(Rendering rendering) {
+        return 4L * rendering.image.getWidth() * rendering.image.getHeight();
+    }
+
+    private static final class Key {
+
+        private final Font font;
+        private final String text;
+        private final int glyphCode;
+        private final boolean forceGaspHint;
+        private final int foreground;
+        private final int background;
+
+        Key(Font font, String text, int glyphCode, boolean forceGaspHint,
+            Color foreground, Color background)
+        {
+            this.font = font;
+            this.text = text;
+            this.glyphCode = text != null ? -1 : glyphCode;
+            this.forceGaspHint = forceGaspHint;
+            this.foreground = foreground.getRGB();
+            this.background = background.getRGB();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return font == other.font
+                && glyphCode == other.glyphCode
+                && forceGaspHint == other.forceGaspHint
+                && foreground == other.foreground
+                && background == other.background
+                && Objects.equals(text, other.text);
+        }
+
+        @Override
+        public int hashCode() {
+            int h = System.identityHashCode(font);
+            h = 31 * h + (text != null ? text.hashCode() : glyphCode);
+            h = 31 * h + (forceGaspHint ? 1 : 0);
+            h = 31 * h + foreground;
+            return 31 * h + background;
+        }
+    }
+
+}
@@ -30,14 +30,14 @@
 
 package com.github.golovnin.fontviewer;
 
+import com.github.golovnin.fontviewer.GlyphRenderer.Rendering;
 import com.jgoodies.binding.value.ValueModel;
 
 import javax.swing.JLabel;
 import javax.swing.SwingUtilities;
 import java.awt.*;
+import java.awt.geom.AffineTransform;
 
-import static java.awt.RenderingHints.KEY_TEXT_ANTIALIASING;
-import static java.awt.RenderingHints.VALUE_TEXT_ANTIALIAS_GASP;
 import static java.util.Objects.requireNonNull;
 
 /**
@@ -45,13 +45,15 @@ import static java.util.Objects.requireNonNull;
  */
 class GlyphLabel extends JLabel {
 
-    static {
+    static void dumpDesktopHints() {
         Toolkit kit = Toolkit.getDefaultToolkit();
         System.out.println("awt.font.desktophints = " +
                 kit.getDesktopProperty("awt.font.desktophints"));
     }
 
     private final ValueModel forceGaspHintHolder;
+    private GlyphImageCache imageCache;
+    private Integer glyphCode;
 
     GlyphLabel(ValueModel forceGaspHintHolder) {
         this.forceGaspHintHolder = requireNonNull(forceGaspHintHolder);
@@ -61,6 +63,44 @@ class GlyphLabel extends JLabel {
         });
     }
 
+    /**
+     * Sets the cache of prefetched renderings to blit from, see
+     * {@link GlyphPrefetcher}. Text that is not cached is painted directly.
+     */
+    void setImageCache(GlyphImageCache imageCache) {
+        this.imageCache = imageCache;
+    }
+
+    public Integer getGlyphCode() {
+        return glyphCode;
+    }
+
+    /**
+     * Paints the glyph with the given glyph code instead of the text, so that
+     * glyphs without a code point can be shown. {@code null} paints the text.
+     */
+    public void setGlyphCode(Integer glyphCode) {
+        Integer oldGlyphCode = getGlyphCode();
+        this.glyphCode = glyphCode;
+        firePropertyChange("glyphCode", oldGlyphCode, glyphCode);
+        revalidate();
+        repaint();
+    }
+
+    @Override
+    public Dimension getPreferredSize() {
+        Font font = getFont();
+        if (glyphCode == null || font == null || isPreferredSizeSet()) {
+            return super.getPreferredSize();
+        }
+        FontMetrics fm = getFontMetrics(font);
+        Insets insets = getInsets();
+        return new Dimension(
+                GlyphRenderer.getAdvance(font, glyphCode, fm.getFontRenderContext())
+                    + insets.left + insets.right,
+                fm.getHeight() + insets.top + insets.bottom);
+    }
+
     private Rectangle viewRectangle = new Rectangle();
     private Rectangle iconRectangle = new Rectangle();
     private Rectangle textRectangle = new Rectangle();
@@ -68,51 +108,148 @@ class GlyphLabel extends JLabel {
     @Override
     protected void paintComponent(Graphics g) {
         boolean forceGaspHint = Boolean.TRUE.equals(forceGaspHintHolder.getValue());
-        if (forceGaspHint && g instanceof Graphics2D) {
-            int width = getWidth();
-            int height = getHeight();
-            Graphics2D g2 = (Graphics2D) g;
-            if (isOpaque()) {
-                g.setColor(getBackground());
-                g.fillRect(0, 0, width, height);
-            }
-            g.setColor(getForeground());
-            Object oldTextAntialiasingHint = g2.getRenderingHint(KEY_TEXT_ANTIALIASING);
-            g2.setRenderingHint(KEY_TEXT_ANTIALIASING, VALUE_TEXT_ANTIALIAS_GASP);
-            FontMetrics fm = getFontMetrics(getFont());
-
-            Insets insets = getInsets(null);
+        if (glyphCode != null) {
+            paintGlyph(g, forceGaspHint);
+            return;
+        }
+        if (!(g instanceof Graphics2D)) {
+            super.paintComponent(g);
+            return;
+        }
+        if (paintCached((Graphics2D) g, forceGaspHint)) {
+            return;
+        }
+        // Painted with the same hints as the prefetched renderings, see
+        // GlyphRenderer, so that a cache miss looks exactly like a hit.
+        Graphics2D g2 = (Graphics2D) g.create();
+        try {
+            paintBackground(g2);
+            Font font = getFont();
             String text = getText();
+            if (font == null || text == null || text.isEmpty()) {
+                return;
+            }
+            GlyphRenderer.applyTextHints(g2, forceGaspHint);
+            g2.setFont(font);
+            g2.setColor(getForeground());
+            FontMetrics fm = getFontMetrics(font);
 
-            viewRectangle.x = insets.left;
-            viewRectangle.y = insets.top;
-            viewRectangle.width = width - (insets.left + insets.right);
-            viewRectangle.height = height - (insets.top + insets.bottom);
-            iconRectangle.x = iconRectangle.y = iconRectangle.width = iconRectangle.height = 0;
-            textRectangle.x = textRectangle.y = textRectangle.width = textRectangle.height = 0;
-
-            String clippedText = SwingUtilities.layoutCompoundLabel(
-                    this,
-                    fm,
-                    text,
-                    null,
-                    getVerticalAlignment(),
-                    getHorizontalAlignment(),
-                    getVerticalTextPosition(),
-                    getHorizontalTextPosition(),
-                    viewRectangle,
-                    iconRectangle,
-                    textRectangle,
-                    getIconTextGap());
+            String clippedText = layoutText(fm);
 
             g2.drawString(clippedText, textRectangle.x, textRectangle.y + fm.getAscent());
+        } finally {
+            g2.dispose();
+        }
+    }
 
-            if (oldTextAntialiasingHint != null) {
-                g2.setRenderingHint(KEY_TEXT_ANTIALIASING, oldTextAntialiasingHint);
+    // Blits the prefetched rendering if there is one.
+    private boolean paintCached(Graphics2D g2, boolean forceGaspHint) {
+        String text = getText();
+        Font font = getFont();
+        if (text == null || text.isEmpty() || font == null || !canBlit(g2)) {
+            return false;
+        }
+        Rendering rendering = imageCache.get(font, text, -1, forceGaspHint, getForeground(), getBackground());
+        if (rendering == null) {
+            return false;
+        }
+        String clippedText = layoutText(getFontMetrics(font));
+        if (!text.equals(clippedText)) {
+            return false;
+        }
+        paintBackground(g2);
+        g2.drawImage(rendering.image,
+                textRectangle.x - rendering.originX, textRectangle.y - rendering.originY, null);
+        return true;
+    }
+
+    private void paintGlyph(Graphics g, boolean forceGaspHint) {
+        paintBackground(g);
+        Font font = getFont();
+        if (font == null || !(g instanceof Graphics2D)) {
+            return;
+        }
+        Graphics2D g2 = (Graphics2D) g.create();
+        try {
+            FontMetrics fm = getFontMetrics(font);
+            layoutGlyph(GlyphRenderer.getAdvance(font, glyphCode, fm.getFontRenderContext()), fm.getHeight());
+            Rendering rendering = canBlit(g2)
+                ? imageCache.get(font, null, glyphCode, forceGaspHint, getForeground(), getBackground())
+                : null;
+            if (rendering != null) {
+                g2.drawImage(rendering.image,
+                        textRectangle.x - rendering.originX, textRectangle.y - rendering.originY, null);
+                return;
             }
-        } else {
-            super.paintComponent(g);
+            GlyphRenderer.applyTextHints(g2, forceGaspHint);
+            g2.setColor(getForeground());
+            g2.drawGlyphVector(GlyphRenderer.createGlyphVector(font, glyphCode, g2.getFontRenderContext()),
+                    textRectangle.x, textRectangle.y + fm.getAscent());
+        } finally {
+            g2.dispose();
+        }
+    }
+
+    // Scaled graphics (HiDPI) are painted directly, a blit would blur the glyph.
+    private boolean canBlit(Graphics2D g2) {
+        return imageCache != null
+            && (g2.getTransform().getType() & ~AffineTransform.TYPE_TRANSLATION) == 0;
+    }
+
+    private void paintBackground(Graphics g) {
+        if (isOpaque()) {
+            g.setColor(getBackground());
+            g.fillRect(0, 0, getWidth(), getHeight());
         }
     }
 
+    // Aligns the glyph bounds like SwingUtilities.layoutCompoundLabel
+    // aligns the text bounds.
+    private void layoutGlyph(int width, int height) {
+        Insets insets = getInsets(null);
+        int viewWidth = getWidth() - (insets.left + insets.right);
+        int viewHeight = getHeight() - (insets.top + insets.bottom);
+        boolean leftToRight = getComponentOrientation().isLeftToRight();
+        int horizontal = getHorizontalAlignment();
+        if (horizontal == LEADING) {
+            horizontal = leftToRight ? LEFT : RIGHT;
+        } else if (horizontal == TRAILING) {
+            horizontal = leftToRight ? RIGHT : LEFT;
+        }
+        int vertical = getVerticalAlignment();
+        textRectangle.width = width;
+        textRectangle.height = height;
+        textRectangle.x = horizontal == CENTER ? insets.left + viewWidth / 2 - width / 2
+                        : horizontal == RIGHT  ? insets.left + viewWidth - width
+                        : insets.left;
+        textRectangle.y = vertical == CENTER ? insets.top + viewHeight / 2 - height / 2
+                        : vertical == BOTTOM ? insets.top + viewHeight - height
+                        : insets.top;
+    }
+
+    private String layoutText(FontMetrics fm) {
+        Insets insets = getInsets(null);
+
+        viewRectangle.x = insets.left;
+        viewRectangle.y = insets.top;
+        viewRectangle.width = getWidth() - (insets.left + insets.right);
+        viewRectangle.height = getHeight() - (insets.top + insets.bottom);
+        iconRectangle.x = iconRectangle.y = iconRectangle.width = iconRectangle.height = 0;
+        textRectangle.x = textRectangle.y = textRectangle.width = textRectangle.height = 0;
+
+        return SwingUtilities.layoutCompoundLabel(
+                this,
+                fm,
+                getText(),
+                null,
+                getVerticalAlignment(),
+                getHorizontalAlignment(),
+                getVerticalTextPosition(),
+                getHorizontalTextPosition(),
+                viewRectangle,
+                iconRectangle,
+                textRectangle,
+                getIconTextGap());
+    }
+
 }
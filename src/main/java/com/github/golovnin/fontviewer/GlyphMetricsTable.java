@@ -0,0 +1,228 @@
+/*
+ * Copyright (c) 2015, Andrej Golovnin
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  Redistributions of source code must retain the above copyright notice, this
+ *  list of conditions and the following disclaimer.
+ *
+ *  Redistributions in binary form must reproduce the above copyright notice,
+ *  this list of conditions and the following disclaimer in the documentation
+ *  and/or other materials provided with the distribution.
+ *
+ *  Neither the name of fontviewer nor the names of its
+ *  contributors may be used to endorse or promote products derived from
+ *  this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.github.golovnin.fontviewer;
+
+import java.awt.Font;
+import java.awt.font.FontRenderContext;
+import java.awt.font.GlyphMetrics;
+import java.awt.font.GlyphVector;
+import java.awt.geom.Rectangle2D;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.Locale;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Glyph metrics of all covered code points of a font at a single size.
+ * The metrics are measured with one {@link GlyphVector} for all glyphs
+ * and kept in primitive arrays indexed like the code point array.
+ *
+ * @author Andrej Golovnin
+ */
+final class GlyphMetricsTable {
+
+    static final FontRenderContext FRC = new FontRenderContext(null, true, true);
+
+    enum Column {
+
+        CODE_POINT("Code"),
+        ADVANCE("Advance"),
+        LSB("LSB"),
+        RSB("RSB"),
+        INK_X("Ink X"),
+        INK_Y("Ink Y"),
+        INK_WIDTH("Ink width"),
+        INK_HEIGHT("Ink height");
+
+        private final String title;
+
+        Column(String title) {
+            this.title = title;
+        }
+
+        @Override
+        public String toString() {
+            return title;
+        }
+    }
+
+    private final Font font;
+    private final int[] codePoints;
+    private final float[][] values;
+
+    private GlyphMetricsTable(Font font, int[] codePoints, float[][] values) {
+        this.font = font;
+        this.codePoints = codePoints;
+        this.values = values;
+    }
+
+    static GlyphMetricsTable compute(Font font, int[] codePoints) {
+        requireNonNull(font, "font may not be null");
+        requireNonNull(codePoints, "codePoints may not be null");
+        int n = codePoints.length;
+        char[] chars = toChars(codePoints);
+        GlyphVector gv = font.createGlyphVector(FRC, chars);
+        float[][] values = new float[Column.values().length][n];
+        float[] advance   = values[Column.ADVANCE.ordinal()];
+        float[] lsb       = values[Column.LSB.ordinal()];
+        float[] rsb       = values[Column.RSB.ordinal()];
+        float[] inkX      = values[Column.INK_X.ordinal()];
+        float[] inkY      = values[Column.INK_Y.ordinal()];
+        float[] inkWidth  = values[Column.INK_WIDTH.ordinal()];
+        float[] inkHeight = values[Column.INK_HEIGHT.ordinal()];
+        float[] codes     = values[Column.CODE_POINT.ordinal()];
+        // Without layout a glyph vector has one glyph per char, the glyph
+        // of a surrogate pair is stored at the index of the high surrogate.
+        int charIndex = 0;
+        for (int i = 0; i < n; i++) {
+            GlyphMetrics gm = gv.getGlyphMetrics(charIndex);
+            Rectangle2D ink = gm.getBounds2D();
+            codes[i] = codePoints[i];
+            advance[i] = gm.getAdvanceX();
+            lsb[i] = gm.getLSB();
+            rsb[i] = gm.getRSB();
+            inkX[i] = (float) ink.getX();
+            inkY[i] = (float) ink.getY();
+            inkWidth[i] = (float) ink.getWidth();
+            inkHeight[i] = (float) ink.getHeight();
+            charIndex += Character.charCount(codePoints[i]);
+        }
+        return new GlyphMetricsTable(font, codePoints, values);
+    }
+
+    static char[] toChars(int[] codePoints) {
+        int length = 0;
+        for (int cp : codePoints) {
+            length += Character.charCount(cp);
+        }
+        char[] chars = new char[length];
+        int offset = 0;
+        for (int cp : codePoints) {
+            offset += Character.toChars(cp, chars, offset);
+        }
+        return chars;
+    }
+
+    Font getFont() {
+        return font;
+    }
+
+    int size() {
+        return codePoints.length;
+    }
+
+    int getCodePoint(int index) {
+        return codePoints[index];
+    }
+
+    float getValue(Column column, int index) {
+        return values[column.ordinal()][index];
+    }
+
+    /**
+     * Returns the row indices ordered by the given column. The sort keys are
+     * packed into longs, so that no boxing is needed even for large fonts.
+     */
+    int[] sortedBy(Column column, boolean descending) {
+        float[] v = values[column.ordinal()];
+        int n = v.length;
+        long[] keys = new long[n];
+        for (int i = 0; i < n; i++) {
+            keys[i] = ((long) sortableBits(v[i]) << 32) | i;
+        }
+        Arrays.sort(keys);
+        int[] order = new int[n];
+        for (int i = 0; i < n; i++) {
+            int row = (int) keys[i];
+            order[descending ? n - 1 - i : i] = row;
+        }
+        return order;
+    }
+
+    void writeCsv(Writer out, String prefix) throws IOException {
+        Column[] columns = Column.values();
+        StringBuilder line = new StringBuilder(128);
+        for (int i = 0; i < codePoints.length; i++) {
+            line.setLength(0);
+            line.append(prefix).append("U+");
+            appendHex(line, codePoints[i]);
+            for (int c = 1; c < columns.length; c++) {
+                appendFixed3(line.append(','), values[c][i]);
+            }
+            out.write(line.append('\n').toString());
+        }
+    }
+
+    // Like String.format("%04X", value), without the parsing of the format.
+    private static void appendHex(StringBuilder sb, int value) {
+        String hex = Integer.toHexString(value).toUpperCase(Locale.ROOT);
+        for (int i = hex.length(); i < 4; i++) {
+            sb.append('0');
+        }
+        sb.append(hex);
+    }
+
+    // Like String.format(Locale.ROOT, "%.3f", value), without the parsing
+    // of the format and without the sign for values that round to zero.
+    private static void appendFixed3(StringBuilder sb, float value) {
+        if (Float.isNaN(value) || Float.isInfinite(value)) {
+            sb.append(value);
+            return;
+        }
+        long thousandths = Math.round(Math.abs((double) value) * 1000);
+        if (value < 0 && thousandths != 0) {
+            sb.append('-');
+        }
+        long fraction = thousandths % 1000;
+        sb.append(thousandths / 1000).append('.');
+        if (fraction < 100) {
+            sb.append(fraction < 10 ? "00" : "0");
+        }
+        sb.append(fraction);
+    }
+
+    static String csvHeader() {
+        StringBuilder header = new StringBuilder("dpi,size,points");
+        for (Column column : Column.values()) {
+            header.append(',').append(column.name().toLowerCase(Locale.ROOT));
+        }
+        return header.append('\n').toString();
+    }
+
+    // Maps a float to an int whose signed order is the numeric order.
+    private static int sortableBits(float f) {
+        int bits = Float.floatToIntBits(f);
+        return bits >= 0 ? bits : bits ^ Integer.MAX_VALUE;
+    }
+
+}
@@ -0,0 +1,280 @@
+/*
+ * Copyright (c) 2015, Andrej Golovnin
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  Redistributions of source code must retain the above copyright notice, this
+ *  list of conditions and the following disclaimer.
+ *
+ *  Redistributions in binary form must reproduce the above copyright notice,
+ *  this list of conditions and the following disclaimer in the documentation
+ *  and/or other materials provided with the distribution.
+ *
+ *  Neither the name of fontviewer nor the names of its
+ *  contributors may be used to endorse or promote products derived from
+ *  this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.github.golovnin.fontviewer;
+
+import com.github.golovnin.fontviewer.GlyphMetricsTable.Column;
+import com.jgoodies.forms.builder.ButtonBarBuilder;
+import com.jgoodies.forms.builder.FormBuilder;
+import com.jgoodies.forms.factories.Paddings;
+
+import javax.swing.*;
+import javax.swing.table.AbstractTableModel;
+import java.awt.Font;
+import java.awt.event.ActionEvent;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.stream.IntStream;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Shows the glyph metrics of a font for every DPI factor and size.
+ *
+ * @author Andrej Golovnin
+ */
+final class GlyphMetricsView {
+
+    private static final Dpi[] DPIS = Dpi.values();
+
+    private final FontModel fontModel;
+    private final JComboBox<Dpi> dpiBox = new JComboBox<>(DPIS);
+    private final JComboBox<String> sizeBox = new JComboBox<>(Fonts.SIZE_NAMES);
+    private final MetricsTableModel tableModel = new MetricsTableModel();
+    private final JLabel statusLabel = new JLabel("Computing\u2026");
+    private final Action exportAction = new ExportAction();
+
+    // Indexed by DPI and size, computed in the background.
+    private GlyphMetricsTable[][] tables;
+
+    GlyphMetricsView(FontModel fontModel) {
+        this.fontModel = requireNonNull(fontModel, "fontModel may not be null");
+    }
+
+    void show() {
+        JDialog dialog = new JDialog(JOptionPane.getRootFrame(),
+                "Glyph Metrics :: " + fontModel);
+        dialog.setDefaultCloseOperation(WindowConstants.DISPOSE_ON_CLOSE);
+        dialog.setContentPane(createView());
+        dialog.pack();
+        dialog.setLocationRelativeTo(JOptionPane.getRootFrame());
+        dialog.setVisible(true);
+        new MetricsComputer().execute();
+    }
+
+    private JComponent createView() {
+        dpiBox.addActionListener(e -> updateTable());
+        sizeBox.addActionListener(e -> updateTable());
+        exportAction.setEnabled(false);
+
+        JTable table = new JTable(tableModel);
+        table.setAutoCreateRowSorter(false);
+        table.getTableHeader().addMouseListener(new MouseAdapter() {
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                int column = table.columnAtPoint(e.getPoint());
+                if (column >= 0) {
+                    tableModel.sortBy(Column.values()[table.convertColumnIndexToModel(column)]);
+                }
+            }
+        });
+
+        return FormBuilder.create()
+            .columns("p, $lcg, p, $ug, p, $lcg, p, f:0:g")
+            .rows("p, $rg, f:200dlu:g, $rg, p")
+            .padding(Paddings.DIALOG)
+
+            .add("DPI:")                              .xy(1, 1)
+            .add(dpiBox)                              .xy(3, 1)
+            .add("Size:")                             .xy(5, 1)
+            .add(sizeBox)                             .xy(7, 1)
+            .add(MainView.createScrollPane(table))    .xyw(1, 3, 8)
+            .add(statusLabel)                         .xyw(1, 5, 7)
+            .add(ButtonBarBuilder.create()
+                    .addButton(exportAction)
+                    .build())                         .xy(8, 5, "r, c")
+            .build();
+    }
+
+    private void updateTable() {
+        if (tables != null) {
+            tableModel.setTable(tables[dpiBox.getSelectedIndex()][sizeBox.getSelectedIndex()]);
+        }
+    }
+
+    private void export() {
+        JFileChooser chooser = new JFileChooser();
+        chooser.setSelectedFile(new File(fontModel + "-metrics.csv"));
+        if (chooser.showSaveDialog(JOptionPane.getRootFrame()) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        GlyphMetricsTable[][] tables = this.tables;
+        File target = chooser.getSelectedFile();
+        new ProgressDialog("Exporting metrics", new SwingWorker<Void, Void>() {
+            @Override
+            protected Void doInBackground() throws IOException, InterruptedException {
+                int total = DPIS.length * Fonts.SIZE_NAMES.length;
+                try (Writer out = Files.newBufferedWriter(target.toPath(), StandardCharsets.UTF_8)) {
+                    out.write(GlyphMetricsTable.csvHeader());
+                    for (int d = 0; d < DPIS.length; d++) {
+                        for (int s = 0; s < Fonts.SIZE_NAMES.length; s++) {
+                            if (Thread.interrupted()) {
+                                throw new InterruptedException();
+                            }
+                            GlyphMetricsTable t = tables[d][s];
+                            t.writeCsv(out, DPIS[d].getDpi() + ","
+                                    + Fonts.SIZE_NAMES[s] + ","
+                                    + t.getFont().getSize2D() + ",");
+                            setProgress((d * Fonts.SIZE_NAMES.length + s + 1) * 100 / total);
+                        }
+                    }
+                }
+                return null;
+            }
+
+            @Override
+            protected void done() {
+                try {
+                    get();
+                } catch (CancellationException | InterruptedException e) {
+                    // Cancelled by the user
+                } catch (ExecutionException e) {
+                    JOptionPane.showMessageDialog(JOptionPane.getRootFrame(),
+                            e.getCause().toString(), "Export failed", JOptionPane.ERROR_MESSAGE);
+                }
+            }
+        }).start();
+    }
+
+    private final class MetricsComputer extends SwingWorker<GlyphMetricsTable[][], Void> {
+
+        private final Font[][] fonts = new Font[DPIS.length][];
+        private final int[] codePoints;
+        private long start;
+
+        MetricsComputer() {
+            FontSnapshot snapshot = fontModel.getSnapshot();
+            for (int d = 0; d < DPIS.length; d++) {
+                fonts[d] = DPIS[d].fontsOf(snapshot).toArray();
+            }
+            codePoints = snapshot.getCodePoints();
+        }
+
+        @Override
+        protected GlyphMetricsTable[][] doInBackground() {
+            start = System.nanoTime();
+            int sizes = Fonts.SIZE_NAMES.length;
+            GlyphMetricsTable[][] result = new GlyphMetricsTable[DPIS.length][sizes];
+            IntStream.range(0, DPIS.length * sizes).parallel().forEach(i ->
+                result[i / sizes][i % sizes] =
+                    GlyphMetricsTable.compute(fonts[i / sizes][i % sizes], codePoints));
+            return result;
+        }
+
+        @Override
+        protected void done() {
+            try {
+                tables = get();
+                long millis = (System.nanoTime() - start) / 1_000_000;
+                statusLabel.setText(String.format("%d glyphs at %d sizes measured in %d ms",
+                        codePoints.length, DPIS.length * Fonts.SIZE_NAMES.length, millis));
+                exportAction.setEnabled(true);
+                updateTable();
+            } catch (InterruptedException e) {
+                statusLabel.setText(e.toString());
+            } catch (ExecutionException e) {
+                statusLabel.setText(e.getCause().toString());
+            }
+        }
+    }
+
+    private static final class MetricsTableModel extends AbstractTableModel {
+
+        private GlyphMetricsTable table;
+        private int[] order;
+        private Column sortColumn = Column.CODE_POINT;
+        private boolean descending;
+
+        void setTable(GlyphMetricsTable table) {
+            this.table = table;
+            this.order = table.sortedBy(sortColumn, descending);
+            fireTableDataChanged();
+        }
+
+        void sortBy(Column column) {
+            // A second click on the same column reverses the order.
+            descending = column == sortColumn && !descending;
+            sortColumn = column;
+            if (table != null) {
+                order = table.sortedBy(sortColumn, descending);
+                fireTableDataChanged();
+            }
+        }
+
+        @Override
+        public int getRowCount() {
+            return table != null ? table.size() : 0;
+        }
+
+        @Override
+        public int getColumnCount() {
+            return Column.values().length;
+        }
+
+        @Override
+        public String getColumnName(int column) {
+            return Column.values()[column].toString();
+        }
+
+        @Override
+        public Class<?> getColumnClass(int column) {
+            return column == 0 ? String.class : Float.class;
+        }
+
+        @Override
+        public Object getValueAt(int row, int column) {
+            int index = order[row];
+            if (column == 0) {
+                return String.format("U+%04X", table.getCodePoint(index));
+            }
+            return table.getValue(Column.values()[column], index);
+        }
+    }
+
+    private final class ExportAction extends AbstractAction {
+
+        ExportAction() {
+            super("Export CSV\u2026");
+        }
+
+        @Override
+        public void actionPerformed(ActionEvent e) {
+            export();
+        }
+    }
+
+}
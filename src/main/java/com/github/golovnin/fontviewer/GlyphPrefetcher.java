@@ -0,0 +1,157 @@
+/*
+ * Copyright (c) 2015, Andrej Golovnin
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  Redistributions of source code must retain the above copyright notice, this
+ *  list of conditions and the following disclaimer.
+ *
+ *  Redistributions in binary form must reproduce the above copyright notice,
+ *  this list of conditions and the following disclaimer in the documentation
+ *  and/or other materials provided with the distribution.
+ *
+ *  Neither the name of fontviewer nor the names of its
+ *  contributors may be used to endorse or promote products derived from
+ *  this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.github.golovnin.fontviewer;
+
+import com.jgoodies.binding.PresentationModel;
+import com.jgoodies.binding.list.SelectionInList;
+import com.jgoodies.binding.value.ValueModel;
+
+import java.awt.Color;
+import java.awt.Font;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Renders the selected glyph and its neighbours in the glyph list at all
+ * sizes and DPI factors into a {@link GlyphImageCache} whenever the glyph
+ * selection, the font or the GASP hint changes, so that stepping through
+ * the glyphs only has to blit the renderings. When browsing by glyph ID
+ * the neighbours in the glyph ID list are rendered instead. The nearest
+ * glyphs are rendered first. Pending work is abandoned when the selection moves on.
+ * Must be used on the EDT only.
+ *
+ * @author Andrej Golovnin
+ */
+final class GlyphPrefetcher {
+
+    static final int DEFAULT_DISTANCE = 8;
+
+    private final GlyphImageCache cache;
+    private final SelectionInList<String> glyphs;
+    private final SelectionInList<Integer> glyphIds;
+    private final ValueModel glyphIdModeHolder;
+    private final PresentationModel<FontModel> fontModel;
+    private final ValueModel forceGaspHintHolder;
+    private final Color foreground;
+    private final Color background;
+    private final int distance;
+    private final AtomicInteger generation = new AtomicInteger();
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "glyph-prefetch");
+        t.setDaemon(true);
+        t.setPriority(Thread.MIN_PRIORITY);
+        return t;
+    });
+    private Future<?> pending;
+
+    /**
+     * @param distance the number of glyphs rendered before and after the selected one
+     */
+    GlyphPrefetcher(GlyphImageCache cache, SelectionInList<String> glyphs,
+                    SelectionInList<Integer> glyphIds, ValueModel glyphIdModeHolder,
+                    PresentationModel<FontModel> fontModel, ValueModel forceGaspHintHolder,
+                    Color foreground, Color background, int distance)
+    {
+        this.cache = requireNonNull(cache, "cache may not be null");
+        this.glyphs = requireNonNull(glyphs, "glyphs may not be null");
+        this.glyphIds = requireNonNull(glyphIds, "glyphIds may not be null");
+        this.glyphIdModeHolder = requireNonNull(glyphIdModeHolder, "glyphIdModeHolder may not be null");
+        this.fontModel = requireNonNull(fontModel, "fontModel may not be null");
+        this.forceGaspHintHolder = requireNonNull(forceGaspHintHolder, "forceGaspHintHolder may not be null");
+        this.foreground = requireNonNull(foreground, "foreground may not be null");
+        this.background = requireNonNull(background, "background may not be null");
+        this.distance = distance;
+        glyphs.getSelectionIndexHolder().addValueChangeListener(evt -> prefetch());
+        glyphIds.getSelectionIndexHolder().addValueChangeListener(evt -> prefetch());
+        glyphIdModeHolder.addValueChangeListener(evt -> prefetch());
+        fontModel.getModel(FontModel.PROPERTY_DEFAULT_FONT).addValueChangeListener(evt -> prefetch());
+        forceGaspHintHolder.addValueChangeListener(evt -> prefetch());
+    }
+
+    private void prefetch() {
+        int currentGeneration = generation.incrementAndGet();
+        if (pending != null) {
+            pending.cancel(true);
+            pending = null;
+        }
+        FontModel fm = fontModel.getBean();
+        boolean glyphIdMode = Boolean.TRUE.equals(glyphIdModeHolder.getValue());
+        int index = glyphIdMode ? glyphIds.getSelectionIndex() : glyphs.getSelectionIndex();
+        if (fm == null || index < 0) {
+            return;
+        }
+        FontSnapshot snapshot = fm.getSnapshot();
+        // In glyph ID mode the list index is the glyph code.
+        int[] codePoints = glyphIdMode ? null : snapshot.getCodePoints();
+        int size = glyphIdMode ? glyphIds.getSize() : codePoints == null ? 0 : codePoints.length;
+        if (index >= size) {
+            return;
+        }
+        Font[][] fonts = new Font[Dpi.values().length][];
+        for (Dpi dpi : Dpi.values()) {
+            fonts[dpi.ordinal()] = dpi.fontsOf(snapshot).toArray();
+        }
+        boolean forceGaspHint = Boolean.TRUE.equals(forceGaspHintHolder.getValue());
+        pending = executor.submit(() -> render(currentGeneration, codePoints, size, index, fonts, forceGaspHint));
+    }
+
+    private void render(int currentGeneration, int[] codePoints, int size, int index,
+                        Font[][] fonts, boolean forceGaspHint)
+    {
+        // 0, +1, -1, +2, -2, ...
+        for (int step = 0; step <= 2 * distance; step++) {
+            int offset = (step + 1) / 2 * (step % 2 == 0 ? -1 : 1);
+            int i = index + offset;
+            if (i < 0 || i >= size) {
+                continue;
+            }
+            String text = codePoints == null ? null : new String(Character.toChars(codePoints[i]));
+            int glyphCode = codePoints == null ? i : -1;
+            for (Font[] dpiFonts : fonts) {
+                for (Font font : dpiFonts) {
+                    if (generation.get() != currentGeneration) {
+                        return;
+                    }
+                    if (!cache.contains(font, text, glyphCode, forceGaspHint, foreground, background)) {
+                        cache.put(font, text, glyphCode, forceGaspHint, foreground, background, text != null
+                                ? GlyphRenderer.renderWithInk(font, text, forceGaspHint, foreground, background)
+                                : GlyphRenderer.renderGlyphWithInk(font, glyphCode, forceGaspHint, foreground, background));
+                    }
+                }
+            }
+        }
+    }
+
+}
@@ -0,0 +1,186 @@
+/*
+ * Copyright (c) 2015, Andrej Golovnin
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  Redistributions of source code must retain the above copyright notice, this
+ *  list of conditions and the following disclaimer.
+ *
+ *  Redistributions in binary form must reproduce the above copyright notice,
+ *  this list of conditions and the following disclaimer in the documentation
+ *  and/or other materials provided with the distribution.
+ *
+ *  Neither the name of fontviewer nor the names of its
+ *  contributors may be used to endorse or promote products derived from
+ *  this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.github.golovnin.fontviewer;
+
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.Graphics2D;
+import java.awt.GraphicsEnvironment;
+import java.awt.Rectangle;
+import java.awt.Toolkit;
+import java.awt.font.FontRenderContext;
+import java.awt.font.GlyphVector;
+import java.awt.image.BufferedImage;
+import java.util.Map;
+
+import static java.awt.RenderingHints.KEY_TEXT_ANTIALIASING;
+import static java.awt.RenderingHints.VALUE_TEXT_ANTIALIAS_GASP;
+import static java.awt.RenderingHints.VALUE_TEXT_ANTIALIAS_ON;
+
+/**
+ * Renders glyphs into images the way {@link GlyphLabel} paints them: with
+ * the GASP hint if it is forced and with the desktop hints otherwise.
+ * The image is as large as the text bounds of the font. Thread safe.
+ *
+ * @author Andrej Golovnin
+ */
+final class GlyphRenderer {
+
+    private GlyphRenderer() {
+        // Utility class
+    }
+
+    static BufferedImage render(Font font, String text, boolean forceGaspHint,
+                                Color foreground, Color background)
+    {
+        return render(font, text, -1, forceGaspHint, foreground, background, false).image;
+    }
+
+    /**
+     * Renders the text like {@link #render(Font, String, boolean, Color, Color)}
+     * into an image that also covers the ink outside the text bounds, for
+     * example of glyphs with a negative left side bearing.
+     */
+    static Rendering renderWithInk(Font font, String text, boolean forceGaspHint,
+                                   Color foreground, Color background)
+    {
+        return render(font, text, -1, forceGaspHint, foreground, background, true);
+    }
+
+    /**
+     * Renders the glyph with the given glyph code like
+     * {@link #renderWithInk(Font, String, boolean, Color, Color)}.
+     * The text bounds are as wide as the advance of the glyph.
+     */
+    static Rendering renderGlyphWithInk(Font font, int glyphCode, boolean forceGaspHint,
+                                        Color foreground, Color background)
+    {
+        return render(font, null, glyphCode, forceGaspHint, foreground, background, true);
+    }
+
+    /**
+     * Returns the advance of the glyph in whole pixels.
+     */
+    static int getAdvance(Font font, int glyphCode, FontRenderContext frc) {
+        return Math.round(createGlyphVector(font, glyphCode, frc).getGlyphMetrics(0).getAdvance());
+    }
+
+    static GlyphVector createGlyphVector(Font font, int glyphCode, FontRenderContext frc) {
+        return font.createGlyphVector(frc, new int[] { glyphCode });
+    }
+
+    // Renders the text or, if it is null, the glyph code.
+    private static Rendering render(Font font, String text, int glyphCode, boolean forceGaspHint,
+                                    Color foreground, Color background, boolean withInk)
+    {
+        BufferedImage scratch = new BufferedImage(1, 1, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = scratch.createGraphics();
+        applyTextHints(g, forceGaspHint);
+        FontMetrics fm = g.getFontMetrics(font);
+        FontRenderContext frc = g.getFontRenderContext();
+        GlyphVector gv = text != null
+                       ? font.createGlyphVector(frc, text)
+                       : createGlyphVector(font, glyphCode, frc);
+        int width = text != null
+                  ? fm.stringWidth(text)
+                  : Math.round(gv.getGlyphMetrics(0).getAdvance());
+        Rectangle bounds = new Rectangle(0, 0, Math.max(width, 1), Math.max(fm.getHeight(), 1));
+        if (withInk) {
+            bounds.add(gv.getPixelBounds(frc, 0, fm.getAscent()));
+            bounds.grow(1, 1);
+        }
+        g.dispose();
+
+        // Text is blended the same way as on screen only without alpha.
+        int type = background != null && background.getAlpha() == 255
+                 ? BufferedImage.TYPE_INT_RGB
+                 : BufferedImage.TYPE_INT_ARGB;
+        BufferedImage image = new BufferedImage(bounds.width, bounds.height, type);
+        g = image.createGraphics();
+        try {
+            if (background != null) {
+                g.setColor(background);
+                g.fillRect(0, 0, bounds.width, bounds.height);
+            }
+            g.translate(-bounds.x, -bounds.y);
+            applyTextHints(g, forceGaspHint);
+            g.setFont(font);
+            g.setColor(foreground);
+            if (text != null) {
+                g.drawString(text, 0, fm.getAscent());
+            } else {
+                g.drawGlyphVector(gv, 0, fm.getAscent());
+            }
+        } finally {
+            g.dispose();
+        }
+        return new Rendering(image, -bounds.x, -bounds.y);
+    }
+
+    static void applyTextHints(Graphics2D g, boolean forceGaspHint) {
+        if (forceGaspHint) {
+            g.setRenderingHint(KEY_TEXT_ANTIALIASING, VALUE_TEXT_ANTIALIAS_GASP);
+            return;
+        }
+        Map<?, ?> desktopHints = getDesktopHints();
+        if (desktopHints != null) {
+            g.addRenderingHints(desktopHints);
+        } else {
+            g.setRenderingHint(KEY_TEXT_ANTIALIASING, VALUE_TEXT_ANTIALIAS_ON);
+        }
+    }
+
+    private static Map<?, ?> getDesktopHints() {
+        if (GraphicsEnvironment.isHeadless()) {
+            return null;
+        }
+        return (Map<?, ?>) Toolkit.getDefaultToolkit().getDesktopProperty("awt.font.desktophints");
+    }
+
+    /**
+     * A rendering and the position of the top left corner of the text
+     * bounds in it.
+     */
+    static final class Rendering {
+
+        final BufferedImage image;
+        final int originX;
+        final int originY;
+
+        Rendering(BufferedImage image, int originX, int originY) {
+            this.image = image;
+            this.originX = originX;
+            this.originY = originY;
+        }
+    }
+
+}
@@ -0,0 +1,181 @@
+/*
+ * Copyright (c) 2015, Andrej Golovnin
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  Redistributions of source code must retain the above copyright notice, this
+ *  list of conditions and the following disclaimer.
+ *
+ *  Redistributions in binary form must reproduce the above copyright notice,
+ *  this list of conditions and the following disclaimer in the documentation
+ *  and/or other materials provided with the distribution.
+ *
+ *  Neither the name of fontviewer nor the names of its
+ *  contributors may be used to endorse or promote products derived from
+ *  this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.github.golovnin.fontviewer;
+
+import java.awt.Font;
+import java.awt.font.FontRenderContext;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Finds glyphs in the sorted code point array of a font. A query is either
+ * a hex code point, a literal character, or a quoted literal character.
+ * A single character is always literal, hex needs a {@code U+}, {@code 0x}
+ * or backslash-u prefix or at least two digits {@code [0-9A-Fa-f]}. Hex
+ * queries are prefixes: {@code 4E} finds U+004E if the font covers it, otherwise
+ * the first covered code point in U+04E0..U+04EF, then in U+4E00..U+4EFF
+ * and so on. Every lookup is a binary search.
+ *
+ * @author Andrej Golovnin
+ */
+final class GlyphSearch {
+
+    private static final int MAX_HEX_DIGITS = 6;
+    private static final FontRenderContext FRC = new FontRenderContext(null, false, false);
+
+    private GlyphSearch() {
+        // Utility class
+    }
+
+    /**
+     * Returns the index of the glyph matching the query,
+     * or {@code -1} if there is none.
+     */
+    static int find(int[] codePoints, String query) {
+        if (codePoints == null || query == null) {
+            return -1;
+        }
+        String q = query.trim();
+        if (q.isEmpty()) {
+            return -1;
+        }
+        String hex = toHexDigits(q);
+        return hex != null ? findHexPrefix(codePoints, hex) : findCodePoint(codePoints, toLiteral(q));
+    }
+
+    /**
+     * Parses a single code point by the same rules as {@link #find(int[], String)}.
+     *
+     * @return the code point or {@code -1} if the query is not valid
+     */
+    static int parseCodePoint(String query) {
+        String q = query != null ? query.trim() : "";
+        if (q.isEmpty()) {
+            return -1;
+        }
+        String hex = toHexDigits(q);
+        if (hex == null) {
+            return toLiteral(q);
+        }
+        if (hex.isEmpty() || hex.length() > MAX_HEX_DIGITS || !isHex(hex)) {
+            return -1;
+        }
+        int codePoint = Integer.parseInt(hex, 16);
+        return codePoint <= Character.MAX_CODE_POINT ? codePoint : -1;
+    }
+
+    /**
+     * Returns the glyph code matching the query in the glyph ID mode:
+     * {@code #123} is the glyph code 123, any other query is parsed by
+     * {@link #parseCodePoint(String)} and mapped to the glyph code by the
+     * character map of the font.
+     *
+     * @return the glyph code or {@code -1} if there is none
+     */
+    static int findGlyphCode(Font font, String query) {
+        String q = query != null ? query.trim() : "";
+        if (font == null || q.isEmpty()) {
+            return -1;
+        }
+        if (q.startsWith("#")) {
+            try {
+                int glyphCode = Integer.parseInt(q.substring(1));
+                return glyphCode < font.getNumGlyphs() ? glyphCode : -1;
+            } catch (NumberFormatException e) {
+                return -1;
+            }
+        }
+        int codePoint = parseCodePoint(q);
+        if (codePoint < 0 || !font.canDisplay(codePoint)) {
+            return -1;
+        }
+        return font.createGlyphVector(FRC, new String(Character.toChars(codePoint))).getGlyphCode(0);
+    }
+
+    static int findCodePoint(int[] codePoints, int codePoint) {
+        int index = Arrays.binarySearch(codePoints, codePoint);
+        return index >= 0 ? index : -1;
+    }
+
+    private static int findHexPrefix(int[] codePoints, String hex) {
+        if (hex.isEmpty() || hex.length() > MAX_HEX_DIGITS || !isHex(hex)) {
+            return -1;
+        }
+        long prefix = Long.parseLong(hex, 16);
+        for (int shift = 0; shift <= 4 * (MAX_HEX_DIGITS - hex.length()); shift += 4) {
+            long low = prefix << shift;
+            if (low > Character.MAX_CODE_POINT) {
+                break;
+            }
+            long high = ((prefix + 1) << shift) - 1;
+            int index = lowerBound(codePoints, (int) low);
+            if (index < codePoints.length && codePoints[index] <= high) {
+                return index;
+            }
+        }
+        return -1;
+    }
+
+    // Returns the index of the first code point not less than the key.
+    private static int lowerBound(int[] codePoints, int key) {
+        int index = Arrays.binarySearch(codePoints, key);
+        return index >= 0 ? index : -index - 1;
+    }
+
+    // Returns the hex digits of a hex query, null for a literal query.
+    private static String toHexDigits(String q) {
+        String lower = q.toLowerCase(Locale.ROOT);
+        if (lower.startsWith("u+") || lower.startsWith("0x") || lower.startsWith("\\u")) {
+            return q.substring(2);
+        }
+        return q.length() >= 2 && isHex(q) ? q : null;
+    }
+
+    private static int toLiteral(String q) {
+        int length = q.length();
+        if (length > 2 && q.charAt(0) == '\'' && q.charAt(length - 1) == '\'') {
+            return q.codePointAt(1);
+        }
+        return q.codePointAt(0);
+    }
+
+    // Only ASCII digits, Character.digit also accepts fullwidth digits.
+    private static boolean isHex(String s) {
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (!(c >= '0' && c <= '9' || c >= 'A' && c <= 'F' || c >= 'a' && c <= 'f')) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+}
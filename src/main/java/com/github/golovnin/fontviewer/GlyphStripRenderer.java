@@ -0,0 +1,360 @@
+/*
+ * Copyright (c) 2015, Andrej Golovnin
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  Redistributions of source code must retain the above copyright notice, this
+ *  list of conditions and the following disclaimer.
+ *
+ *  Redistributions in binary form must reproduce the above copyright notice,
+ *  this list of conditions and the following disclaimer in the documentation
+ *  and/or other materials provided with the distribution.
+ *
+ *  Neither the name of fontviewer nor the names of its
+ *  contributors may be used to endorse or promote products derived from
+ *  this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.github.golovnin.fontviewer;
+
+import java.awt.Color;
+import java.awt.EventQueue;
+import java.awt.Font;
+import java.awt.FontFormatException;
+import java.awt.FontMetrics;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Renders one code point in many fonts into a single image strip with
+ * a cell per font. The fonts are rendered in batches on background threads
+ * and each batch is copied into the strip on the EDT. Fonts whose coverage
+ * lacks the code point are marked as missing without being rendered,
+ * evicted fonts are opened just for the rendering. Complete strips are
+ * cached per font version, so that a reload invalidates them. A new request
+ * abandons the pending batches of the previous one. Must be used on the
+ * EDT only.
+ *
+ * @author Andrej Golovnin
+ */
+final class GlyphStripRenderer {
+
+    static final int BATCH_SIZE = 8;
+
+    // The cells are square and twice as large as the nominal box.
+    private static final float CELL_SCALE = 2.0f;
+    private static final long MAX_CACHE_BYTES = 64L * 1024 * 1024;
+
+    private final Map<Key, Strip> cache = new LinkedHashMap<>(16, 0.75f, true);
+    private long cacheBytes;
+    private final Color foreground;
+    private final Color background;
+    private final Consumer<Strip> updateListener;
+    private final AtomicInteger generation = new AtomicInteger();
+    private final ExecutorService executor = Executors.newFixedThreadPool(
+            Math.max(1, Runtime.getRuntime().availableProcessors() - 1), r -> {
+        Thread t = new Thread(r, "glyph-strip");
+        t.setDaemon(true);
+        t.setPriority(Thread.MIN_PRIORITY);
+        return t;
+    });
+    private final List<Future<?>> pending = new ArrayList<>();
+
+    /**
+     * @param updateListener called on the EDT whenever cells of the strip
+     *        returned by the last request have been rendered
+     */
+    GlyphStripRenderer(Color foreground, Color background, Consumer<Strip> updateListener) {
+        this.foreground = requireNonNull(foreground, "foreground may not be null");
+        this.background = requireNonNull(background, "background may not be null");
+        this.updateListener = requireNonNull(updateListener, "updateListener may not be null");
+    }
+
+    /**
+     * Returns the strip of the code point in the given fonts. A strip that
+     * is not cached is returned with pending cells, which are rendered in
+     * the background.
+     *
+     * @param fonts the fonts, all of them must have been loaded at least once
+     */
+    Strip request(int codePoint, int sizeIndex, Dpi dpi, boolean forceGaspHint, List<FontModel> fonts) {
+        int currentGeneration = generation.incrementAndGet();
+        for (Future<?> f : pending) {
+            f.cancel(true);
+        }
+        pending.clear();
+
+        Key key = new Key(codePoint, sizeIndex, dpi, forceGaspHint);
+        FontSnapshot[] snapshots = new FontSnapshot[fonts.size()];
+        int[] versions = new int[snapshots.length];
+        for (int i = 0; i < snapshots.length; i++) {
+            snapshots[i] = fonts.get(i).getSnapshot();
+            versions[i] = snapshots[i].getVersion();
+        }
+        Strip cached = cache.get(key);
+        if (cached != null && cached.isValid(fonts, versions)) {
+            return cached;
+        }
+
+        float pixelSize = Fonts.NOMINAL_SIZES[sizeIndex] * dpi.getScaleFactor();
+        int cellSize = (int) Math.ceil(pixelSize * CELL_SCALE);
+        Strip strip = new Strip(key, new ArrayList<>(fonts), versions, cellSize, background);
+        List<Integer> batch = new ArrayList<>(BATCH_SIZE);
+        for (int i = 0; i < snapshots.length; i++) {
+            BitSet coverage = snapshots[i].getCoverage();
+            if (coverage == null || !coverage.get(codePoint)) {
+                strip.states[i] = Strip.MISSING;
+                continue;
+            }
+            batch.add(i);
+            if (batch.size() == BATCH_SIZE) {
+                submit(currentGeneration, strip, snapshots, batch, pixelSize);
+                batch = new ArrayList<>(BATCH_SIZE);
+            }
+        }
+        if (!batch.isEmpty()) {
+            submit(currentGeneration, strip, snapshots, batch, pixelSize);
+        }
+        if (strip.isComplete()) {
+            cache(strip);
+        }
+        return strip;
+    }
+
+    private void submit(int currentGeneration, Strip strip, FontSnapshot[] snapshots,
+                        List<Integer> cells, float pixelSize)
+    {
+        Font[] fonts = new Font[cells.size()];
+        for (int i = 0; i < fonts.length; i++) {
+            FontSnapshot snapshot = snapshots[cells.get(i)];
+            if (!snapshot.isEvicted()) {
+                fonts[i] = strip.key.dpi.fontsOf(snapshot).toArray()[strip.key.sizeIndex];
+            }
+        }
+        boolean forceGaspHint = strip.key.forceGaspHint;
+        String text = new String(Character.toChars(strip.key.codePoint));
+        pending.add(executor.submit(() -> {
+            int cellSize = strip.cellSize;
+            BufferedImage image = new BufferedImage(cellSize * fonts.length, cellSize, BufferedImage.TYPE_INT_RGB);
+            byte[] states = new byte[fonts.length];
+            Graphics2D g = image.createGraphics();
+            try {
+                g.setColor(background);
+                g.fillRect(0, 0, image.getWidth(), image.getHeight());
+                GlyphRenderer.applyTextHints(g, forceGaspHint);
+                g.setColor(foreground);
+                for (int i = 0; i < fonts.length; i++) {
+                    if (generation.get() != currentGeneration) {
+                        return;
+                    }
+                    Font font = fonts[i];
+                    try {
+                        if (font == null) {
+                            font = strip.fonts.get(cells.get(i)).createDefaultFont()
+                                    .deriveFont(Font.PLAIN, pixelSize);
+                        }
+                    } catch (IOException | FontFormatException | RuntimeException e) {
+                        states[i] = Strip.FAILED;
+                        continue;
+                    }
+                    g.setClip(i * cellSize, 0, cellSize, cellSize);
+                    g.setFont(font);
+                    FontMetrics fm = g.getFontMetrics();
+                    int x = i * cellSize + (cellSize - fm.stringWidth(text)) / 2;
+                    int y = (cellSize - fm.getAscent() - fm.getDescent()) / 2 + fm.getAscent();
+                    g.drawString(text, x, y);
+                    states[i] = Strip.RENDERED;
+                }
+            } finally {
+                g.dispose();
+            }
+            EventQueue.invokeLater(() -> {
+                if (generation.get() == currentGeneration) {
+                    strip.copy(cells, image, states);
+                    if (strip.isComplete()) {
+                        cache(strip);
+                    }
+                    updateListener.accept(strip);
+                }
+            });
+        }));
+    }
+
+    private void cache(Strip strip) {
+        long size = strip.getBytes();
+        if (size > MAX_CACHE_BYTES) {
+            return;
+        }
+        Strip old = cache.put(strip.key, strip);
+        cacheBytes += size - (old != null ? old.getBytes() : 0);
+        Iterator<Strip> it = cache.values().iterator();
+        while (cacheBytes > MAX_CACHE_BYTES && it.hasNext()) {
+            cacheBytes -= it.next().getBytes();
+            it.remove();
+        }
+    }
+
+    /**
+     * The renderings of one code point, a square cell per font.
+     * Only modified on the EDT.
+     */
+    static final class Strip {
+
+        static final byte PENDING  = 0;
+        static final byte RENDERED = 1;
+        static final byte MISSING  = 2;
+        static final byte FAILED   = 3;
+
+        private final Key key;
+        private final List<FontModel> fonts;
+        private final int[] versions;
+        private final int cellSize;
+        private final BufferedImage image;
+        private final byte[] states;
+
+        private Strip(Key key, List<FontModel> fonts, int[] versions, int cellSize, Color background) {
+            this.key = key;
+            this.fonts = fonts;
+            this.versions = versions;
+            this.cellSize = cellSize;
+            this.states = new byte[fonts.size()];
+            this.image = new BufferedImage(Math.max(cellSize * fonts.size(), 1), cellSize,
+                    BufferedImage.TYPE_INT_RGB);
+            Graphics2D g = image.createGraphics();
+            try {
+                g.setColor(background);
+                g.fillRect(0, 0, image.getWidth(), image.getHeight());
+            } finally {
+                g.dispose();
+            }
+        }
+
+        int getCodePoint() {
+            return key.codePoint;
+        }
+
+        List<FontModel> getFonts() {
+            return fonts;
+        }
+
+        int getCellSize() {
+            return cellSize;
+        }
+
+        /**
+         * Returns the strip with the cell of the i-th font at x = i * cell size.
+         * Only cells in the {@link #RENDERED} state are valid.
+         */
+        BufferedImage getImage() {
+            return image;
+        }
+
+        byte getState(int index) {
+            return states[index];
+        }
+
+        boolean isComplete() {
+            for (byte state : states) {
+                if (state == PENDING) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private boolean isValid(List<FontModel> newFonts, int[] newVersions) {
+            if (newFonts.size() != fonts.size() || !Arrays.equals(newVersions, versions)) {
+                return false;
+            }
+            for (int i = 0; i < fonts.size(); i++) {
+                if (newFonts.get(i) != fonts.get(i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private void copy(List<Integer> cells, BufferedImage batch, byte[] batchStates) {
+            Graphics2D g = image.createGraphics();
+            try {
+                for (int i = 0; i < cells.size(); i++) {
+                    int cell = cells.get(i);
+                    if (batchStates[i] == RENDERED) {
+                        g.drawImage(batch,
+                                cell * cellSize, 0, (cell + 1) * cellSize, cellSize,
+                                i * cellSize, 0, (i + 1) * cellSize, cellSize, null);
+                    }
+                    states[cell] = batchStates[i];
+                }
+            } finally {
+                g.dispose();
+            }
+        }
+
+        private long getBytes() {
+            return (long) image.getWidth() * image.getHeight() * 4;
+        }
+    }
+
+    private static final class Key {
+
+        private final int codePoint;
+        private final int sizeIndex;
+        private final Dpi dpi;
+        private final boolean forceGaspHint;
+
+        Key(int codePoint, int sizeIndex, Dpi dpi, boolean forceGaspHint) {
+            this.codePoint = codePoint;
+            this.sizeIndex = sizeIndex;
+            this.dpi = dpi;
+            this.forceGaspHint = forceGaspHint;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return codePoint == other.codePoint
+                && sizeIndex == other.sizeIndex
+                && dpi == other.dpi
+                && forceGaspHint == other.forceGaspHint;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(codePoint, sizeIndex, dpi, forceGaspHint);
+        }
+    }
+
+}
@@ -0,0 +1,359 @@
+/*
+ * Copyright (c) 2015, Andrej Golovnin
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  Redistributions of source code must retain the above copyright notice, this
+ *  list of conditions and the following disclaimer.
+ *
+ *  Redistributions in binary form must reproduce the above copyright notice,
+ *  this list of conditions and the following disclaimer in the documentation
+ *  and/or other materials provided with the distribution.
+ *
+ *  Neither the name of fontviewer nor the names of its
+ *  contributors may be used to endorse or promote products derived from
+ *  this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.github.golovnin.fontviewer;
+
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.Graphics2D;
+import java.awt.font.FontRenderContext;
+import java.awt.font.LineMetrics;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongConsumer;
+
+import static java.awt.RenderingHints.KEY_TEXT_ANTIALIASING;
+import static java.awt.RenderingHints.VALUE_TEXT_ANTIALIAS_GASP;
+import static java.awt.RenderingHints.VALUE_TEXT_ANTIALIAS_ON;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Rasterizes every glyph at every size and DPI factor with plain
+ * antialiasing and with the GASP hint and scores both bitmaps:
+ * <ul>
+ * <li>sharpness: the share of inked pixels that are fully on, 1 for a
+ *     bilevel rendering,</li>
+ * <li>stem contrast: the mean peak intensity of the horizontal and vertical
+ *     runs of inked pixels, low if stems are smeared over two pixels.</li>
+ * </ul>
+ * Ranges of glyphs are scored in parallel. Every thread renders into its
+ * own pooled grayscale buffer.
+ *
+ * @author Andrej Golovnin
+ */
+final class HintingScorer {
+
+    static final int WORST_GLYPHS = 10;
+
+    private static final int RANGE_SIZE = 1024;
+    private static final FontRenderContext FRC = new FontRenderContext(null, true, false);
+
+    private static final ThreadLocal<Canvas> CANVAS = new ThreadLocal<>();
+
+    private final int[] codePoints;
+    private final Font[][] fonts = new Font[Dpi.values().length][];
+
+    // Keeps a snapshot, so the model may be evicted or reloaded during a run.
+    HintingScorer(FontModel fontModel) {
+        requireNonNull(fontModel, "fontModel may not be null");
+        FontSnapshot snapshot = fontModel.getSnapshot();
+        this.codePoints = snapshot.getCodePoints();
+        for (Dpi dpi : Dpi.values()) {
+            fonts[dpi.ordinal()] = dpi.fontsOf(snapshot).toArray();
+        }
+    }
+
+    long getWorkSize() {
+        return (long) codePoints.length * Dpi.values().length * Fonts.NOMINAL_SIZES.length;
+    }
+
+    /**
+     * Scores all glyphs and returns one result per DPI factor and size,
+     * ordered by DPI factor first.
+     */
+    List<Score> score(LongConsumer progress) throws InterruptedException {
+        AtomicLong done = new AtomicLong();
+        ExecutorService executor = Executors.newFixedThreadPool(
+                Runtime.getRuntime().availableProcessors());
+        try {
+            List<Score> scores = new ArrayList<>();
+            List<List<Future<Score>>> futures = new ArrayList<>();
+            for (Dpi dpi : Dpi.values()) {
+                Font[] dpiFonts = fonts[dpi.ordinal()];
+                for (int s = 0; s < dpiFonts.length; s++) {
+                    Font font = dpiFonts[s];
+                    String size = Fonts.SIZE_NAMES[s];
+                    List<Future<Score>> parts = new ArrayList<>();
+                    for (int from = 0; from < codePoints.length; from += RANGE_SIZE) {
+                        int[] range = Arrays.copyOfRange(codePoints, from,
+                                Math.min(from + RANGE_SIZE, codePoints.length));
+                        parts.add(executor.submit(() -> {
+                            Score score = score(font, dpi, size, range);
+                            progress.accept(done.addAndGet(range.length));
+                            return score;
+                        }));
+                    }
+                    futures.add(parts);
+                }
+            }
+            for (List<Future<Score>> parts : futures) {
+                Score total = null;
+                for (Future<Score> part : parts) {
+                    total = total == null ? part.get() : total.merge(part.get());
+                }
+                if (total != null) {
+                    scores.add(total);
+                }
+            }
+            return scores;
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof InterruptedException) {
+                throw (InterruptedException) cause;
+            }
+            throw new IllegalStateException(cause);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static Score score(Font font, Dpi dpi, String size, int[] codePoints)
+            throws InterruptedException
+    {
+        if (Thread.currentThread().isInterrupted()) {
+            throw new InterruptedException();
+        }
+        int pixelSize = (int) Math.ceil(font.getSize2D());
+        LineMetrics lm = font.getLineMetrics("", FRC);
+        int ascent = (int) Math.ceil(lm.getAscent()) + 1;
+        int descent = (int) Math.ceil(lm.getDescent()) + 1;
+        // The glyph is drawn with a margin of one em on the left.
+        int x0 = pixelSize;
+        int width = 4 * pixelSize;
+        int height = ascent + descent;
+        Canvas canvas = Canvas.get(width, height);
+        canvas.clear();
+        Score score = new Score(dpi, size);
+        char[] chars = new char[2];
+        for (int cp : codePoints) {
+            int length = Character.toChars(cp, chars, 0);
+            canvas.draw(font, VALUE_TEXT_ANTIALIAS_ON, chars, length, x0, ascent, width, height);
+            float sharpnessOff = canvas.sharpness(width, height);
+            float contrastOff = canvas.stemContrast(width, height);
+            canvas.draw(font, VALUE_TEXT_ANTIALIAS_GASP, chars, length, x0, ascent, width, height);
+            float sharpnessOn = canvas.sharpness(width, height);
+            float contrastOn = canvas.stemContrast(width, height);
+            score.add(cp, sharpnessOff, sharpnessOn, contrastOff, contrastOn);
+        }
+        return score;
+    }
+
+    /**
+     * A grayscale buffer and its graphics, pooled per thread.
+     */
+    private static final class Canvas {
+
+        private final BufferedImage image;
+        private final Graphics2D g;
+        private final byte[] pixels;
+        private final int stride;
+
+        private Canvas(int width, int height) {
+            image = new BufferedImage(width, height, BufferedImage.TYPE_BYTE_GRAY);
+            g = image.createGraphics();
+            g.setColor(Color.WHITE);
+            pixels = ((DataBufferByte) image.getRaster().getDataBuffer()).getData();
+            stride = width;
+        }
+
+        static Canvas get(int width, int height) {
+            Canvas canvas = CANVAS.get();
+            if (canvas == null || canvas.image.getWidth() < width || canvas.image.getHeight() < height) {
+                if (canvas != null) {
+                    canvas.g.dispose();
+                }
+                int w = Math.max(width, canvas != null ? canvas.image.getWidth() : 0);
+                int h = Math.max(height, canvas != null ? canvas.image.getHeight() : 0);
+                canvas = new Canvas(w, h);
+                CANVAS.set(canvas);
+            }
+            return canvas;
+        }
+
+        void clear() {
+            Arrays.fill(pixels, (byte) 0);
+        }
+
+        void draw(Font font, Object antialiasing, char[] chars, int length,
+                  int x, int baseline, int width, int height)
+        {
+            for (int y = 0; y < height; y++) {
+                Arrays.fill(pixels, y * stride, y * stride + width, (byte) 0);
+            }
+            g.setFont(font);
+            g.setRenderingHint(KEY_TEXT_ANTIALIASING, antialiasing);
+            g.drawChars(chars, 0, length, x, baseline);
+        }
+
+        float sharpness(int width, int height) {
+            int inked = 0;
+            int full = 0;
+            for (int y = 0; y < height; y++) {
+                int row = y * stride;
+                for (int x = 0; x < width; x++) {
+                    int v = pixels[row + x] & 0xFF;
+                    if (v != 0) {
+                        inked++;
+                        if (v == 0xFF) {
+                            full++;
+                        }
+                    }
+                }
+            }
+            return inked > 0 ? (float) full / inked : 1.0f;
+        }
+
+        float stemContrast(int width, int height) {
+            long peaks = 0;
+            int runs = 0;
+            // Horizontal runs
+            for (int y = 0; y < height; y++) {
+                int row = y * stride;
+                int peak = 0;
+                for (int x = 0; x <= width; x++) {
+                    int v = x < width ? pixels[row + x] & 0xFF : 0;
+                    if (v != 0) {
+                        peak = Math.max(peak, v);
+                    } else if (peak != 0) {
+                        peaks += peak;
+                        runs++;
+                        peak = 0;
+                    }
+                }
+            }
+            // Vertical runs
+            for (int x = 0; x < width; x++) {
+                int peak = 0;
+                for (int y = 0; y <= height; y++) {
+                    int v = y < height ? pixels[y * stride + x] & 0xFF : 0;
+                    if (v != 0) {
+                        peak = Math.max(peak, v);
+                    } else if (peak != 0) {
+                        peaks += peak;
+                        runs++;
+                        peak = 0;
+                    }
+                }
+            }
+            return runs > 0 ? peaks / (255.0f * runs) : 1.0f;
+        }
+    }
+
+    /**
+     * The aggregated scores of all glyphs at one DPI factor and size and
+     * the glyphs with the lowest stem contrast with the GASP hint.
+     */
+    static final class Score {
+
+        final Dpi dpi;
+        final String size;
+        private int count;
+        private double sharpnessOff;
+        private double sharpnessOn;
+        private double contrastOff;
+        private double contrastOn;
+        // Sorted by ascending contrast, the worst glyph first.
+        private final int[] worstGlyphs = new int[WORST_GLYPHS];
+        private final float[] worstContrasts = new float[WORST_GLYPHS];
+        private int worstCount;
+
+        Score(Dpi dpi, String size) {
+            this.dpi = dpi;
+            this.size = size;
+        }
+
+        void add(int codePoint, float sharpnessOff, float sharpnessOn,
+                 float contrastOff, float contrastOn)
+        {
+            count++;
+            this.sharpnessOff += sharpnessOff;
+            this.sharpnessOn += sharpnessOn;
+            this.contrastOff += contrastOff;
+            this.contrastOn += contrastOn;
+            addWorst(codePoint, contrastOn);
+        }
+
+        private void addWorst(int codePoint, float contrast) {
+            if (worstCount == WORST_GLYPHS && contrast >= worstContrasts[worstCount - 1]) {
+                return;
+            }
+            int i = Math.min(worstCount, WORST_GLYPHS - 1);
+            while (i > 0 && worstContrasts[i - 1] > contrast) {
+                worstGlyphs[i] = worstGlyphs[i - 1];
+                worstContrasts[i] = worstContrasts[i - 1];
+                i--;
+            }
+            worstGlyphs[i] = codePoint;
+            worstContrasts[i] = contrast;
+            worstCount = Math.min(worstCount + 1, WORST_GLYPHS);
+        }
+
+        Score merge(Score other) {
+            count += other.count;
+            sharpnessOff += other.sharpnessOff;
+            sharpnessOn += other.sharpnessOn;
+            contrastOff += other.contrastOff;
+            contrastOn += other.contrastOn;
+            for (int i = 0; i < other.worstCount; i++) {
+                addWorst(other.worstGlyphs[i], other.worstContrasts[i]);
+            }
+            return this;
+        }
+
+        int getCount() {
+            return count;
+        }
+
+        float getSharpness(boolean gasp) {
+            return mean(gasp ? sharpnessOn : sharpnessOff);
+        }
+
+        float getStemContrast(boolean gasp) {
+            return mean(gasp ? contrastOn : contrastOff);
+        }
+
+        int[] getWorstGlyphs() {
+            return Arrays.copyOf(worstGlyphs, worstCount);
+        }
+
+        private float mean(double sum) {
+            return count > 0 ? (float) (sum / count) : 0.0f;
+        }
+    }
+
+}
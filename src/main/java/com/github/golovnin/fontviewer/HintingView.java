@@ -0,0 +1,165 @@
+/*
+ * Copyright (c) 2015, Andrej Golovnin
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  Redistributions of source code must retain the above copyright notice, this
+ *  list of conditions and the following disclaimer.
+ *
+ *  Redistributions in binary form must reproduce the above copyright notice,
+ *  this list of conditions and the following disclaimer in the documentation
+ *  and/or other materials provided with the distribution.
+ *
+ *  Neither the name of fontviewer nor the names of its
+ *  contributors may be used to endorse or promote products derived from
+ *  this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.github.golovnin.fontviewer;
+
+import com.github.golovnin.fontviewer.HintingScorer.Score;
+import com.jgoodies.forms.builder.FormBuilder;
+import com.jgoodies.forms.factories.Paddings;
+
+import javax.swing.*;
+import javax.swing.table.AbstractTableModel;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Scores the hinting quality of a font in the background and shows
+ * the scores per DPI factor and size.
+ *
+ * @author Andrej Golovnin
+ */
+final class HintingView {
+
+    private final FontModel fontModel;
+    private final List<Score> scores;
+
+    private HintingView(FontModel fontModel, List<Score> scores) {
+        this.fontModel = fontModel;
+        this.scores = scores;
+    }
+
+    static void score(FontModel fontModel) {
+        requireNonNull(fontModel, "fontModel may not be null");
+        HintingScorer scorer = new HintingScorer(fontModel);
+        new ProgressDialog("Scoring hinting quality", new SwingWorker<List<Score>, Void>() {
+            @Override
+            protected List<Score> doInBackground() throws InterruptedException {
+                long total = Math.max(scorer.getWorkSize(), 1);
+                return scorer.score(done -> setProgress((int) (done * 100 / total)));
+            }
+
+            @Override
+            protected void done() {
+                try {
+                    new HintingView(fontModel, get()).show();
+                } catch (CancellationException | InterruptedException e) {
+                    // Cancelled by the user
+                } catch (ExecutionException e) {
+                    JOptionPane.showMessageDialog(JOptionPane.getRootFrame(),
+                            e.getCause().toString(), "Hinting score failed",
+                            JOptionPane.ERROR_MESSAGE);
+                }
+            }
+        }).start();
+    }
+
+    private void show() {
+        JDialog dialog = new JDialog(JOptionPane.getRootFrame(), "Hinting Quality :: " + fontModel);
+        dialog.setDefaultCloseOperation(WindowConstants.DISPOSE_ON_CLOSE);
+        JTable table = new JTable(new ScoreTableModel());
+        table.setAutoCreateRowSorter(true);
+        dialog.setContentPane(FormBuilder.create()
+            .columns("f:420dlu:g")
+            .rows("p, $rg, f:200dlu:g")
+            .padding(Paddings.DIALOG)
+
+            .add("Sharpness: share of fully inked pixels. "
+                + "Stem contrast: mean peak intensity of pixel runs.")  .xy(1, 1)
+            .add(MainView.createScrollPane(table))                      .xy(1, 3)
+            .build());
+        dialog.pack();
+        dialog.setLocationRelativeTo(JOptionPane.getRootFrame());
+        dialog.setVisible(true);
+    }
+
+    private final class ScoreTableModel extends AbstractTableModel {
+
+        private final String[] columnNames = {
+            "DPI", "Size", "Glyphs", "Sharpness", "Sharpness (GASP)",
+            "Stem contrast", "Stem contrast (GASP)", "Worst glyphs (GASP)"
+        };
+
+        @Override
+        public int getRowCount() {
+            return scores.size();
+        }
+
+        @Override
+        public int getColumnCount() {
+            return columnNames.length;
+        }
+
+        @Override
+        public String getColumnName(int column) {
+            return columnNames[column];
+        }
+
+        @Override
+        public Class<?> getColumnClass(int column) {
+            switch (column) {
+                case 0:
+                case 2:  return Integer.class;
+                case 1:
+                case 7:  return String.class;
+                default: return Float.class;
+            }
+        }
+
+        @Override
+        public Object getValueAt(int row, int column) {
+            Score score = scores.get(row);
+            switch (column) {
+                case 0:  return score.dpi.getDpi();
+                case 1:  return score.size;
+                case 2:  return score.getCount();
+                case 3:  return score.getSharpness(false);
+                case 4:  return score.getSharpness(true);
+                case 5:  return score.getStemContrast(false);
+                case 6:  return score.getStemContrast(true);
+                default: return formatGlyphs(score.getWorstGlyphs());
+            }
+        }
+
+        private String formatGlyphs(int[] codePoints) {
+            StringBuilder sb = new StringBuilder();
+            for (int cp : codePoints) {
+                if (sb.length() > 0) {
+                    sb.append(' ');
+                }
+                sb.append(String.format("U+%04X", cp));
+            }
+            return sb.toString();
+        }
+    }
+
+}
@@ -31,6 +31,7 @@
 package com.github.golovnin.fontviewer;
 
 import java.awt.EventQueue;
+import java.util.prefs.Preferences;
 
 /**
  * @author Andrej Golovnin
@@ -38,13 +39,27 @@ import java.awt.EventQueue;
 public final class Main {
 
     public static void main(String... args) {
+        StartupTracer.start();
         EventQueue.invokeLater(Main::createAndShowView);
     }
 
     private static void createAndShowView() {
+        StartupTracer.mark("EDT started");
         MainModel model = new MainModel();
         MainView view = new MainView(model);
         view.show();
+        EventQueue.invokeLater(Main::startBackgroundInitialization);
+    }
+
+    // Work that is not needed for the first frame.
+    private static void startBackgroundInitialization() {
+        Thread t = new Thread(() -> {
+            GlyphLabel.dumpDesktopHints();
+            Preferences.userNodeForPackage(MainModel.class);
+        }, "fontviewer-init");
+        t.setDaemon(true);
+        t.setPriority(Thread.MIN_PRIORITY);
+        t.start();
     }
 
 }
@@ -32,12 +32,30 @@ package com.github.golovnin.fontviewer;
 
 import com.jgoodies.binding.PresentationModel;
 import com.jgoodies.binding.list.SelectionInList;
+import com.jgoodies.binding.value.ValueHolder;
+import com.jgoodies.binding.value.ValueModel;
 
 import javax.swing.JFileChooser;
 import javax.swing.JOptionPane;
 import javax.swing.SwingWorker;
+import javax.swing.event.ListDataEvent;
+import javax.swing.event.ListDataListener;
 import javax.swing.filechooser.FileFilter;
+import java.awt.Font;
 import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileVisitOption;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 import java.util.concurrent.ExecutionException;
 import java.util.prefs.Preferences;
 
@@ -49,32 +67,103 @@ import static java.util.Objects.requireNonNull;
  */
 final class MainModel {
 
+    private final FontList fontList;
     private final SelectionInList<FontModel> fonts;
     private final SelectionInList<String> glyphs;
+    private final SelectionInList<Integer> glyphIds;
+    private final ValueModel glyphIdModeHolder;
+    // The selected glyph code in the glyph ID mode, null otherwise
+    private final ValueModel glyphCodeHolder;
     private final PresentationModel<FontModel> fontModel;
     private final PresentationModel<Fonts> fonts96dpiModel;
     private final PresentationModel<Fonts> fonts120dpiModel;
     private final PresentationModel<Fonts> fonts144dpiModel;
     private final PresentationModel<Fonts> fonts192dpiModel;
+    private final FontMemoryManager memoryManager;
+    private final FontPayloadCache payloads;
+    private final PreviewServer previewServer;
+    // Read by the preview server threads, replaced on every list change.
+    private volatile List<FontModel> fontsSnapshot = Collections.emptyList();
 
     MainModel() {
-        this.fonts = new SelectionInList<>();
+        this.fontList = new FontList();
+        this.fonts = new SelectionInList<>((List<FontModel>) fontList);
         this.fontModel = new PresentationModel<>(fonts.getSelectionHolder());
         this.fonts96dpiModel = new PresentationModel<>(fontModel.getModel(PROPERTY_FONT_96_DPI));
         this.fonts120dpiModel = new PresentationModel<>(fontModel.getModel(PROPERTY_FONT_120_DPI));
         this.fonts144dpiModel = new PresentationModel<>(fontModel.getModel(PROPERTY_FONT_144_DPI));
         this.fonts192dpiModel = new PresentationModel<>(fontModel.getModel(PROPERTY_FONT_192_DPI));
         this.glyphs = new SelectionInList<>(fontModel.getModel(PROPERTY_GLYPHS));
+        this.glyphIds = new SelectionInList<>(GlyphIdList.EMPTY);
+        this.glyphIdModeHolder = new ValueHolder(false);
+        this.glyphCodeHolder = new ValueHolder(null);
+        fontModel.getModel(PROPERTY_DEFAULT_FONT).addValueChangeListener(
+                evt -> updateGlyphIds((Font) evt.getNewValue()));
+        glyphIds.getSelectionHolder().addValueChangeListener(evt -> updateGlyphCode());
+        glyphIdModeHolder.addValueChangeListener(evt -> updateGlyphCode());
+        this.memoryManager = new FontMemoryManager();
+        this.payloads = new FontPayloadCache();
+        fonts.getSelectionHolder().addValueChangeListener(
+                evt -> onFontSelected((FontModel) evt.getNewValue()));
+        fonts.addListDataListener(new FontsSnapshotUpdater());
+        this.previewServer = new PreviewServer(() -> fontsSnapshot);
     }
 
     SelectionInList<FontModel> getFonts() {
         return fonts;
     }
 
+    /**
+     * Shows only the fonts matching the filter, see {@link FontList}.
+     */
+    void setFontFilter(String filter) {
+        fontList.setFilter(filter, fonts.getSelection());
+    }
+
     SelectionInList<String> getGlyphs() {
         return glyphs;
     }
 
+    /**
+     * Returns the glyph codes of the selected font, see {@link GlyphIdList}.
+     */
+    SelectionInList<Integer> getGlyphIds() {
+        return glyphIds;
+    }
+
+    /**
+     * Holds {@code true} if the glyphs are browsed by glyph ID rather than
+     * by code point.
+     */
+    ValueModel getGlyphIdModeHolder() {
+        return glyphIdModeHolder;
+    }
+
+    /**
+     * Holds the selected glyph code in the glyph ID mode, {@code null}
+     * in the code point mode.
+     */
+    ValueModel getGlyphCodeHolder() {
+        return glyphCodeHolder;
+    }
+
+    private boolean isGlyphIdMode() {
+        return Boolean.TRUE.equals(glyphIdModeHolder.getValue());
+    }
+
+    private void updateGlyphIds(Font font) {
+        Integer selection = glyphIds.getSelection();
+        glyphIds.setList(font != null ? new GlyphIdList(font.getNumGlyphs()) : GlyphIdList.EMPTY);
+        // Keeps the glyph code selected when the font is reloaded.
+        if (selection != null && glyphIds.getList().contains(selection)) {
+            glyphIds.setSelection(selection);
+        }
+    }
+
+    private void updateGlyphCode() {
+        glyphCodeHolder.setValue(isGlyphIdMode() ? glyphIds.getSelection() : null);
+    }
+
     PresentationModel<FontModel> getFontModel() {
         return fontModel;
     }
@@ -95,6 +184,45 @@ final class MainModel {
         return fonts192dpiModel;
     }
 
+    /**
+     * Returns all fonts, including the fonts hidden by the filter, in the
+     * order of the font list. The list is an unmodifiable view, it is up to
+     * date in every listener of the font list. Must be called on the EDT.
+     */
+    List<FontModel> getAllFonts() {
+        return fontList.getAll();
+    }
+
+    FontMemoryManager getMemoryManager() {
+        return memoryManager;
+    }
+
+    /**
+     * Selects the glyph matching the query, see {@link GlyphSearch}.
+     *
+     * @return {@code true} if a glyph was found
+     */
+    boolean findGlyph(String query) {
+        FontModel fm = fonts.getSelection();
+        if (fm != null && isGlyphIdMode()) {
+            int glyphCode = GlyphSearch.findGlyphCode(fm.getDefaultFont(), query);
+            if (glyphCode >= 0 && glyphCode < glyphIds.getSize()) {
+                glyphIds.setSelectionIndex(glyphCode);
+                return true;
+            }
+            return false;
+        }
+        int index = fm != null ? GlyphSearch.find(fm.getCodePoints(), query) : -1;
+        if (index >= 0) {
+            glyphs.setSelectionIndex(index);
+        }
+        return index >= 0;
+    }
+
+    PreviewServer getPreviewServer() {
+        return previewServer;
+    }
+
     void addFont() {
         Preferences prefs = Preferences.userNodeForPackage(getClass());
         String lastDir = prefs.get("lastdir", null);
@@ -109,9 +237,60 @@ final class MainModel {
         }
     }
 
+    /**
+     * Lets the user choose a directory and adds all fonts in it and its
+     * subdirectories. Only the names of the fonts are read, the fonts are
+     * loaded when they are selected.
+     */
+    void addFontDirectory() {
+        Preferences prefs = Preferences.userNodeForPackage(getClass());
+        String lastDir = prefs.get("lastdir", null);
+        JFileChooser chooser = new JFileChooser(lastDir);
+        chooser.setFileSelectionMode(JFileChooser.DIRECTORIES_ONLY);
+        int option = chooser.showOpenDialog(JOptionPane.getRootFrame());
+        if (option == JFileChooser.APPROVE_OPTION) {
+            File dir = chooser.getSelectedFile();
+            prefs.put("lastdir", dir.getAbsolutePath());
+            new FontScanner(dir).execute();
+        }
+    }
+
+    /**
+     * Removes the selected font and selects its successor. The payload of
+     * the font is freed unless another font with the same content uses it.
+     */
+    void removeFont() {
+        int index = fonts.getSelectionIndex();
+        if (index < 0) {
+            return;
+        }
+        FontModel fm = fontList.remove(index);
+        memoryManager.unregister(fm);
+        fm.dispose();
+        if (!fontList.isEmpty()) {
+            fonts.setSelectionIndex(Math.min(index, fontList.size() - 1));
+        }
+    }
+
     void reloadFonts() {
-        FontModel[] models = new FontModel[fonts.getList().size()];
-        new FontReloader(fonts.getList().toArray(models)).execute();
+        // Evicted fonts are rescanned on expansion if their file has changed.
+        List<FontModel> models = new ArrayList<>();
+        for (FontModel fm : fontList.getAll()) {
+            if (!fm.isEvicted()) {
+                models.add(fm);
+            }
+        }
+        new FontReloader(models.toArray(new FontModel[models.size()])).execute();
+    }
+
+    private void onFontSelected(FontModel fm) {
+        if (fm == null) {
+            return;
+        }
+        memoryManager.touch(fm);
+        if (fm.isEvicted()) {
+            new FontExpander(fm).execute();
+        }
     }
 
     private void showError(Throwable e) {
@@ -129,7 +308,7 @@ final class MainModel {
 
         @Override
         protected FontModel doInBackground() throws Exception {
-            FontModel fm = new FontModel(file);
+            FontModel fm = new FontModel(file, payloads);
             fm.load();
             return fm;
         }
@@ -143,9 +322,11 @@ final class MainModel {
                 try {
                     FontModel fm = get();
                     fonts.getList().add(fm);
+                    memoryManager.register(fm);
                     if (fonts.isSelectionEmpty()) {
                         fonts.setSelectionIndex(0);
                     }
+                    memoryManager.enforceBudget(fonts.getSelection());
                 } catch (InterruptedException e) {
                     showError(e);
                 } catch (ExecutionException e) {
@@ -156,6 +337,91 @@ final class MainModel {
 
     }
 
+    private final class FontScanner extends SwingWorker<Void, FontModel> {
+
+        private static final int MAX_REPORTED_FILES = 10;
+
+        private final File dir;
+        // Written by the background thread only, read in done().
+        private final List<String> skipped = new ArrayList<>();
+
+        FontScanner(File dir) {
+            this.dir = requireNonNull(dir, "dir may not be null");
+        }
+
+        @Override
+        protected Void doInBackground() throws Exception {
+            Set<File> known = new HashSet<>();
+            for (FontModel fm : fontsSnapshot) {
+                known.add(fm.getFile());
+            }
+            TTFFileFilter filter = new TTFFileFilter();
+            Files.walkFileTree(dir.toPath(), EnumSet.of(FileVisitOption.FOLLOW_LINKS),
+                    Integer.MAX_VALUE, new SimpleFileVisitor<Path>() {
+                @Override
+                public FileVisitResult visitFile(Path path, BasicFileAttributes attrs) {
+                    File file = path.toFile();
+                    if (attrs.isRegularFile() && filter.accept(file) && known.add(file)) {
+                        FontModel fm = new FontModel(file, payloads);
+                        try {
+                            fm.loadNames();
+                            publish(fm);
+                        } catch (IOException | RuntimeException e) {
+                            skipped.add(file + ": " + e);
+                        }
+                    }
+                    return isCancelled() ? FileVisitResult.TERMINATE : FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFileFailed(Path path, IOException e) {
+                    skipped.add(path + ": " + e);
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+            return null;
+        }
+
+        @Override
+        protected void process(List<FontModel> chunks) {
+            memoryManager.registerAll(chunks);
+            fontList.addAll(chunks, fonts.getSelection());
+        }
+
+        @Override
+        protected void done() {
+            if (isCancelled()) {
+                return;
+            }
+            try {
+                get();
+                reportSkipped();
+            } catch (InterruptedException e) {
+                showError(e);
+            } catch (ExecutionException e) {
+                showError(e.getCause());
+            }
+        }
+
+        private void reportSkipped() {
+            if (skipped.isEmpty()) {
+                return;
+            }
+            StringBuilder message = new StringBuilder();
+            message.append(skipped.size()).append(skipped.size() == 1 ? " file" : " files")
+                   .append(" could not be read:\n");
+            for (String s : skipped.subList(0, Math.min(skipped.size(), MAX_REPORTED_FILES))) {
+                message.append('\n').append(s);
+            }
+            if (skipped.size() > MAX_REPORTED_FILES) {
+                message.append("\n\u2026");
+            }
+            JOptionPane.showMessageDialog(JOptionPane.getRootFrame(),
+                    message.toString(), "Add Folder", JOptionPane.WARNING_MESSAGE);
+        }
+
+    }
+
     private final class FontReloader extends SwingWorker<Void, Void> {
 
         private final FontModel[] models;
@@ -180,6 +446,7 @@ final class MainModel {
             if (isDone()) {
                 try {
                     get();
+                    memoryManager.enforceBudget(fonts.getSelection());
                 } catch (InterruptedException e) {
                     showError(e);
                 } catch (ExecutionException e) {
@@ -190,6 +457,61 @@ final class MainModel {
 
     }
 
+    private final class FontExpander extends SwingWorker<Void, Void> {
+
+        private final FontModel model;
+
+        FontExpander(FontModel model) {
+            this.model = requireNonNull(model, "model may not be null");
+        }
+
+        @Override
+        protected Void doInBackground() throws Exception {
+            model.expand();
+            return null;
+        }
+
+        @Override
+        protected void done() {
+            if (isCancelled()) {
+                return;
+            }
+            if (isDone()) {
+                try {
+                    get();
+                    memoryManager.enforceBudget(fonts.getSelection());
+                } catch (InterruptedException e) {
+                    showError(e);
+                } catch (ExecutionException e) {
+                    showError(e.getCause());
+                }
+            }
+        }
+
+    }
+
+    private final class FontsSnapshotUpdater implements ListDataListener {
+
+        @Override
+        public void intervalAdded(ListDataEvent e) {
+            update();
+        }
+
+        @Override
+        public void intervalRemoved(ListDataEvent e) {
+            update();
+        }
+
+        @Override
+        public void contentsChanged(ListDataEvent e) {
+            update();
+        }
+
+        private void update() {
+            fontsSnapshot = Collections.unmodifiableList(new ArrayList<>(fontList.getAll()));
+        }
+    }
+
     private static final class TTFFileFilter extends FileFilter {
 
         @Override
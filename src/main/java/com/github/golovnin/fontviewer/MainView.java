@@ -34,7 +34,6 @@ import com.jgoodies.binding.PresentationModel;
 import com.jgoodies.binding.adapter.Bindings;
 import com.jgoodies.binding.list.SelectionInList;
 import com.jgoodies.binding.value.BindingConverter;
-import com.jgoodies.binding.value.ConverterValueModel;
 import com.jgoodies.binding.value.ValueModel;
 import com.jgoodies.common.base.SystemUtils;
 import com.jgoodies.forms.builder.ButtonBarBuilder;
@@ -44,8 +43,18 @@ import com.jgoodies.looks.plastic.PlasticXPLookAndFeel;
 import com.jgoodies.looks.windows.WindowsLookAndFeel;
 
 import javax.swing.*;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import java.awt.BorderLayout;
+import java.awt.CardLayout;
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.FontMetrics;
 import java.awt.Insets;
+import java.awt.Rectangle;
 import java.awt.event.ActionEvent;
+import java.io.IOException;
+import java.util.function.Supplier;
 
 import static com.github.golovnin.fontviewer.FontModel.PROPERTY_DEFAULT_FONT;
 import static com.jgoodies.binding.beans.PropertyConnector.connectAndUpdate;
@@ -56,6 +65,11 @@ import static java.util.Objects.requireNonNull;
  */
 final class MainView {
 
+    private static final String TAB_FACTORY_KEY = "fontviewer.tabFactory";
+    private static final String CODE_POINTS_CARD = "codePoints";
+    private static final String GLYPH_IDS_CARD = "glyphIds";
+    private static final long GLYPH_CACHE_SIZE = 32L * 1024 * 1024;
+
     private final MainModel model;
 
     MainView(MainModel model) {
@@ -64,13 +78,16 @@ final class MainView {
 
     void show() {
         configureLaF();
+        StartupTracer.mark("look and feel");
         JFrame frame = new JFrame("Font :: Viewer");
         JOptionPane.setRootFrame(frame);
         frame.setDefaultCloseOperation(WindowConstants.EXIT_ON_CLOSE);
-        frame.setContentPane(createMainView());
+        frame.setContentPane(StartupTracer.wrap(createMainView()));
+        StartupTracer.mark("main view");
         frame.pack();
         frame.setLocationRelativeTo(null);
         frame.setVisible(true);
+        StartupTracer.mark("frame shown");
     }
 
     private static void configureLaF() {
@@ -95,20 +112,33 @@ final class MainView {
             .rows("p, $rg, f:180dlu:g, $rg, f:170dlu:g, $rg, p")
             .padding(Paddings.DIALOG)
 
-            .add("Fonts:")                       .xy(1, 1)
+            .add(createFontsHeader())            .xy(1, 1)
             .add(createFontList())               .xywh(1, 3, 1, 3)
 
-            .add("Glyphs:")                      .xy(3, 1)
+            .add(createGlyphsHeader())           .xy(3, 1)
             .add(createForceGaspHintCheckBox())  .xy(5, 1)
             .add(createGlyphsList())             .xyw(3, 3, 3)
             .add(createGlyphView())              .xyw(3, 5, 3)
 
-            .add(createButtonBar())              .xy(1, 7)
+            .add(createButtonBar())              .xyw(1, 7, 3)
+            .add(createMemoryLabel())            .xy(5, 7, "r, c")
             .build();
     }
 
     private JComponent createFontList() {
         JList<FontModel> list = createList(model.getFonts(), null);
+        FontPreviewCache previews = new FontPreviewCache(list.getForeground(), fm -> {
+            int index = model.getFonts().getList().indexOf(fm);
+            if (index >= 0) {
+                Rectangle bounds = list.getCellBounds(index, index);
+                if (bounds != null) {
+                    list.repaint(bounds);
+                }
+            }
+        });
+        list.setCellRenderer(new FontListCellRenderer(previews));
+        // Avoids rendering every entry to compute the size of the list.
+        list.setFixedCellHeight((int) FontPreviewCache.SAMPLE_SIZE * 3 / 2 + 4);
         return createScrollPane(list);
     }
 
@@ -121,7 +151,101 @@ final class MainView {
         return box;
     }
 
+    private JComponent createFontsHeader() {
+        return FormBuilder.create()
+            .columns("p, $lcg, f:0:g")
+            .rows("p")
+
+            .add("Fonts:")                       .xy(1, 1)
+            .add(createFilterField())            .xy(3, 1)
+            .build();
+    }
+
+    private JComponent createFilterField() {
+        JTextField field = new JTextField();
+        field.setToolTipText("Filter by family, name or file name");
+        field.getDocument().addDocumentListener(new DocumentListener() {
+            @Override
+            public void insertUpdate(DocumentEvent e) {
+                model.setFontFilter(field.getText());
+            }
+
+            @Override
+            public void removeUpdate(DocumentEvent e) {
+                model.setFontFilter(field.getText());
+            }
+
+            @Override
+            public void changedUpdate(DocumentEvent e) {
+                // Attribute changes do not affect the filter.
+            }
+        });
+        return field;
+    }
+
+    private JComponent createGlyphsHeader() {
+        return FormBuilder.create()
+            .columns("p, $lcg, p, f:0:g, p, $lcg, 80dlu")
+            .rows("p")
+
+            .add("Glyphs:")                      .xy(1, 1)
+            .add(createGlyphIdModeCheckBox())    .xy(3, 1)
+            .add("Find:")                        .xy(5, 1)
+            .add(createSearchField())            .xy(7, 1)
+            .build();
+    }
+
+    private JComponent createGlyphIdModeCheckBox() {
+        JCheckBox box = new JCheckBox("by glyph ID");
+        box.setToolTipText("List all glyphs of the font, including glyphs without a code point");
+        box.setContentAreaFilled(false);
+        Bindings.bind(box, model.getGlyphIdModeHolder());
+        return box;
+    }
+
+    private JComponent createSearchField() {
+        JTextField field = new JTextField();
+        field.setToolTipText("Hex code point (U+1F600, 0x4E00, 4E00), a character, 'x', " +
+                "or a glyph ID (#123) when browsing by glyph ID");
+        Color foreground = field.getForeground();
+        Runnable search = () -> {
+            String query = field.getText();
+            boolean found = query.trim().isEmpty() || model.findGlyph(query);
+            field.setForeground(found ? foreground : Color.RED);
+        };
+        field.getDocument().addDocumentListener(new DocumentListener() {
+            @Override
+            public void insertUpdate(DocumentEvent e) {
+                search.run();
+            }
+
+            @Override
+            public void removeUpdate(DocumentEvent e) {
+                search.run();
+            }
+
+            @Override
+            public void changedUpdate(DocumentEvent e) {
+                // Attribute changes do not affect the query.
+            }
+        });
+        field.addActionListener(e -> search.run());
+        return field;
+    }
+
     private JComponent createGlyphsList() {
+        JPanel cards = new JPanel(new CardLayout());
+        cards.add(createCodePointList(), CODE_POINTS_CARD);
+        cards.add(createGlyphIdList(), GLYPH_IDS_CARD);
+        ValueModel glyphIdModeHolder = model.getGlyphIdModeHolder();
+        Runnable updater = () -> ((CardLayout) cards.getLayout()).show(cards,
+                Boolean.TRUE.equals(glyphIdModeHolder.getValue()) ? GLYPH_IDS_CARD : CODE_POINTS_CARD);
+        glyphIdModeHolder.addValueChangeListener(evt -> updater.run());
+        updater.run();
+        return cards;
+    }
+
+    private JComponent createCodePointList() {
         ValueModel forceGaspHintHolder = model.getFontModel().getModel(
                 FontModel.PROPERTY_FORCE_GASP_HINT);
         GlyphListCellRenderer r = new GlyphListCellRenderer(forceGaspHintHolder);
@@ -133,13 +257,76 @@ final class MainView {
         });
         list.setLayoutOrientation(JList.HORIZONTAL_WRAP);
         list.setVisibleRowCount(0);
+        model.getGlyphs().getSelectionIndexHolder().addValueChangeListener(evt -> {
+            int index = list.getSelectedIndex();
+            if (index >= 0) {
+                list.ensureIndexIsVisible(index);
+            }
+        });
         connectAndUpdate(model.getFontModel().getModel(PROPERTY_DEFAULT_FONT), list, "font");
         return createScrollPane(list);
     }
 
+    private JComponent createGlyphIdList() {
+        ValueModel forceGaspHintHolder = model.getFontModel().getModel(
+                FontModel.PROPERTY_FORCE_GASP_HINT);
+        GlyphIdCellRenderer r = new GlyphIdCellRenderer(forceGaspHintHolder);
+        r.setHorizontalAlignment(SwingConstants.CENTER);
+        JList<Integer> list = createList(model.getGlyphIds(), r);
+        forceGaspHintHolder.addValueChangeListener(evt -> {
+            list.revalidate();
+            list.repaint();
+        });
+        list.setLayoutOrientation(JList.HORIZONTAL_WRAP);
+        list.setVisibleRowCount(0);
+        // Fonts may have up to 65535 glyphs. A fixed cell size avoids
+        // measuring every glyph to lay out the list.
+        list.addPropertyChangeListener("font", evt -> {
+            Font font = (Font) evt.getNewValue();
+            if (font == null) {
+                // No font selected yet
+                return;
+            }
+            FontMetrics fm = list.getFontMetrics(font);
+            Insets insets = r.getInsets();
+            int advance = fm.getMaxAdvance() > 0 ? fm.getMaxAdvance() : font.getSize();
+            list.setFixedCellWidth(advance + insets.left + insets.right);
+            list.setFixedCellHeight(fm.getHeight() + insets.top + insets.bottom);
+        });
+        model.getGlyphIds().getSelectionIndexHolder().addValueChangeListener(evt -> {
+            int index = list.getSelectedIndex();
+            if (index >= 0) {
+                list.ensureIndexIsVisible(index);
+            }
+        });
+        connectAndUpdate(model.getFontModel().getModel(PROPERTY_DEFAULT_FONT), list, "font");
+        return createScrollPane(list);
+    }
+
+    private JComponent createMemoryLabel() {
+        FontMemoryManager manager = model.getMemoryManager();
+        JLabel label = new JLabel();
+        Runnable updater = () -> label.setText(String.format(
+                "Memory: %.1f of %d MB, %d of %d fonts loaded, %d evictions",
+                manager.getFootprint() / (1024.0 * 1024.0),
+                manager.getBudget() / (1024 * 1024),
+                manager.getFontCount() - manager.getEvictedFonts(),
+                manager.getFontCount(),
+                manager.getEvictionCount()));
+        manager.addPropertyChangeListener(evt -> updater.run());
+        updater.run();
+        return label;
+    }
+
     private JComponent createButtonBar() {
         return ButtonBarBuilder.create()
-            .addButton(new AddAction(), new ReloadAction())
+            .addButton(new AddAction(), new AddFolderAction(), new RemoveAction(), new ReloadAction())
+            .addRelatedGap()
+            .addButton(new MetricsAction(), new CoverageAction(), new CorpusAction(),
+                       new SvgExportAction(), new SubsetExportAction(), new ClippingAction(),
+                       new HintingAction())
+            .addRelatedGap()
+            .addButton(new PreviewServerAction())
             .build();
     }
 
@@ -163,9 +350,18 @@ final class MainView {
         field.setEditable(false);
         field.setBorder(null);
         field.setMargin(new Insets(0, 0, 0, 0));
-        Bindings.bind(field, new ConverterValueModel(
-                model.getGlyphs().getSelectionHolder(),
-                new UnicodeConverter()));
+        UnicodeConverter converter = new UnicodeConverter();
+        ValueModel glyphCodeHolder = model.getGlyphCodeHolder();
+        ValueModel glyphHolder = model.getGlyphs().getSelectionHolder();
+        Runnable updater = () -> {
+            Integer glyphCode = (Integer) glyphCodeHolder.getValue();
+            field.setText(glyphCode != null
+                    ? "#" + glyphCode
+                    : converter.targetValue((String) glyphHolder.getValue()));
+        };
+        glyphCodeHolder.addValueChangeListener(evt -> updater.run());
+        glyphHolder.addValueChangeListener(evt -> updater.run());
+        updater.run();
         return field;
     }
 
@@ -173,19 +369,76 @@ final class MainView {
         final JTabbedPane pane = new JTabbedPane();
         pane.setBackground(UIManager.getColor("List.background"));
 
-        pane.addTab("96 dpi", createTabView(model.getFonts96dpiModel()));
-        pane.addTab("120 dpi", createTabView(model.getFonts120dpiModel()));
-        pane.addTab("144 dpi", createTabView(model.getFonts144dpiModel()));
-        pane.addTab("192 dpi", createTabView(model.getFonts192dpiModel()));
-
+        GlyphImageCache imageCache = new GlyphImageCache(GLYPH_CACHE_SIZE);
+        new GlyphPrefetcher(imageCache, model.getGlyphs(),
+                model.getGlyphIds(), model.getGlyphIdModeHolder(), model.getFontModel(),
+                model.getFontModel().getModel(FontModel.PROPERTY_FORCE_GASP_HINT),
+                UIManager.getColor("Label.foreground"), UIManager.getColor("List.background"),
+                GlyphPrefetcher.DEFAULT_DISTANCE);
+
+        addLazyTab(pane, "96 dpi", () -> createTabView(model.getFonts96dpiModel(), imageCache));
+        addLazyTab(pane, "120 dpi", () -> createTabView(model.getFonts120dpiModel(), imageCache));
+        addLazyTab(pane, "144 dpi", () -> createTabView(model.getFonts144dpiModel(), imageCache));
+        addLazyTab(pane, "192 dpi", () -> createTabView(model.getFonts192dpiModel(), imageCache));
+        addLazyTab(pane, "Waterfall", this::createWaterfallView);
+        addLazyTab(pane, "All Fonts", this::createGlyphComparisonView);
+
+        // Tabs are built on first selection.
+        pane.addChangeListener(e -> buildSelectedTab(pane));
+        buildSelectedTab(pane);
         return pane;
     }
 
-    private JComponent createTabView(PresentationModel<Fonts> fontsModel) {
+    private static void addLazyTab(JTabbedPane pane, String title,
+                                   Supplier<JComponent> factory)
+    {
+        JPanel placeholder = new JPanel(new BorderLayout());
+        placeholder.setOpaque(false);
+        placeholder.putClientProperty(TAB_FACTORY_KEY, factory);
+        pane.addTab(title, placeholder);
+    }
+
+    private static void buildSelectedTab(JTabbedPane pane) {
+        JComponent placeholder = (JComponent) pane.getSelectedComponent();
+        if (placeholder == null) {
+            return;
+        }
+        @SuppressWarnings("unchecked")
+        Supplier<JComponent> factory = (Supplier<JComponent>)
+                placeholder.getClientProperty(TAB_FACTORY_KEY);
+        if (factory != null) {
+            placeholder.putClientProperty(TAB_FACTORY_KEY, null);
+            placeholder.add(factory.get(), BorderLayout.CENTER);
+            placeholder.revalidate();
+        }
+    }
+
+    private JComponent createTabView(PresentationModel<Fonts> fontsModel,
+                                     GlyphImageCache imageCache)
+    {
         return new FontsView(
                 model.getFontModel().getModel(FontModel.PROPERTY_FORCE_GASP_HINT),
                 model.getGlyphs().getSelectionHolder(),
-                fontsModel)
+                model.getGlyphCodeHolder(),
+                fontsModel,
+                imageCache)
+                .createView();
+    }
+
+    private JComponent createWaterfallView() {
+        return new WaterfallView(
+                model.getFontModel().getModel(FontModel.PROPERTY_FORCE_GASP_HINT),
+                model.getFontModel())
+                .createView();
+    }
+
+    private JComponent createGlyphComparisonView() {
+        return new GlyphComparisonView(
+                model.getFontModel().getModel(FontModel.PROPERTY_FORCE_GASP_HINT),
+                model.getGlyphs().getSelectionHolder(),
+                model.getFontModel().getModel(PROPERTY_DEFAULT_FONT),
+                model.getFonts(),
+                model::getAllFonts)
                 .createView();
     }
 
@@ -219,6 +472,33 @@ final class MainView {
         }
     }
 
+    private final class AddFolderAction extends AbstractAction {
+
+        AddFolderAction() {
+            super("Add Folder\u2026");
+        }
+
+        @Override
+        public void actionPerformed(ActionEvent e) {
+            model.addFontDirectory();
+        }
+    }
+
+    private final class RemoveAction extends AbstractAction {
+
+        RemoveAction() {
+            super("Remove");
+            model.getFonts().getSelectionIndexHolder().addValueChangeListener(
+                    evt -> setEnabled(model.getFonts().hasSelection()));
+            setEnabled(model.getFonts().hasSelection());
+        }
+
+        @Override
+        public void actionPerformed(ActionEvent e) {
+            model.removeFont();
+        }
+    }
+
     private final class ReloadAction extends AbstractAction {
 
         ReloadAction() {
@@ -231,6 +511,133 @@ final class MainView {
         }
     }
 
+    private final class MetricsAction extends AbstractAction {
+
+        MetricsAction() {
+            super("Metrics\u2026");
+        }
+
+        @Override
+        public void actionPerformed(ActionEvent e) {
+            FontModel fm = model.getFonts().getSelection();
+            if (fm != null && !fm.isEvicted()) {
+                new GlyphMetricsView(fm).show();
+            }
+        }
+    }
+
+    private final class CoverageAction extends AbstractAction {
+
+        CoverageAction() {
+            super("Coverage\u2026");
+        }
+
+        @Override
+        public void actionPerformed(ActionEvent e) {
+            new CoverageView(model.getFonts(), model::getAllFonts).show();
+        }
+    }
+
+    private final class CorpusAction extends AbstractAction {
+
+        CorpusAction() {
+            super("Check Corpus\u2026");
+        }
+
+        @Override
+        public void actionPerformed(ActionEvent e) {
+            CorpusView.checkCorpus(model.getAllFonts());
+        }
+    }
+
+    private final class SvgExportAction extends AbstractAction {
+
+        SvgExportAction() {
+            super("Export SVG\u2026");
+        }
+
+        @Override
+        public void actionPerformed(ActionEvent e) {
+            FontModel fm = model.getFonts().getSelection();
+            if (fm != null && !fm.isEvicted()) {
+                SvgExportView.export(fm);
+            }
+        }
+    }
+
+    private final class SubsetExportAction extends AbstractAction {
+
+        SubsetExportAction() {
+            super("Export Subset\u2026");
+        }
+
+        @Override
+        public void actionPerformed(ActionEvent e) {
+            FontModel fm = model.getFonts().getSelection();
+            if (fm != null && !fm.isEvicted()) {
+                SubsetExportView.export(fm, model.getGlyphs().getSelectionIndex());
+            }
+        }
+    }
+
+    private final class ClippingAction extends AbstractAction {
+
+        ClippingAction() {
+            super("Find Clipping\u2026");
+        }
+
+        @Override
+        public void actionPerformed(ActionEvent e) {
+            FontModel fm = model.getFonts().getSelection();
+            if (fm != null && !fm.isEvicted()) {
+                ClippingView.scan(fm);
+            }
+        }
+    }
+
+    private final class HintingAction extends AbstractAction {
+
+        HintingAction() {
+            super("Score Hinting\u2026");
+        }
+
+        @Override
+        public void actionPerformed(ActionEvent e) {
+            FontModel fm = model.getFonts().getSelection();
+            if (fm != null && !fm.isEvicted()) {
+                HintingView.score(fm);
+            }
+        }
+    }
+
+    private final class PreviewServerAction extends AbstractAction {
+
+        private static final String START = "Start Server";
+        private static final String STOP  = "Stop Server";
+
+        PreviewServerAction() {
+            super(START);
+        }
+
+        @Override
+        public void actionPerformed(ActionEvent e) {
+            PreviewServer server = model.getPreviewServer();
+            if (server.isRunning()) {
+                server.stop();
+                putValue(NAME, START);
+                return;
+            }
+            try {
+                server.start(Integer.getInteger("fontviewer.httpPort", 8910));
+                putValue(NAME, STOP);
+                putValue(SHORT_DESCRIPTION, "http://localhost:" + server.getPort() + "/fonts");
+            } catch (IOException ex) {
+                JOptionPane.showMessageDialog(JOptionPane.getRootFrame(),
+                        ex.getMessage(), "Preview server", JOptionPane.ERROR_MESSAGE);
+            }
+        }
+    }
+
     private static final class UnicodeConverter implements
             BindingConverter<String, String>
     {
@@ -238,7 +645,7 @@ final class MainView {
         @Override
         public String targetValue(String sourceValue) {
             return sourceValue != null
-                 ? "\\u" + Integer.toHexString(sourceValue.charAt(0)).toUpperCase()
+                 ? "\\u" + Integer.toHexString(sourceValue.codePointAt(0)).toUpperCase()
                  : "";
         }
 
@@ -0,0 +1,416 @@
+/*
+ * Copyright (c) 2015, Andrej Golovnin
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  Redistributions of source code must retain the above copyright notice, this
+ *  list of conditions and the following disclaimer.
+ *
+ *  Redistributions in binary form must reproduce the above copyright notice,
+ *  this list of conditions and the following disclaimer in the documentation
+ *  and/or other materials provided with the distribution.
+ *
+ *  Neither the name of fontviewer nor the names of its
+ *  contributors may be used to endorse or promote products derived from
+ *  this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.github.golovnin.fontviewer;
+
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.Font;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * An embedded HTTP server for viewing the loaded fonts in a browser on the
+ * same machine. It listens on the loopback address only and serves:
+ * <pre>
+ * /fonts                       the font list as JSON
+ * /fonts/{id}/coverage         the covered ranges as JSON
+ * /fonts/{id}/glyph/{hex}.png  a glyph rendering, optional parameters:
+ *                              size (10x10, default, 16x16, ..., 48x48),
+ *                              dpi (96, 120, 144, 192), hint (gasp, default)
+ * </pre>
+ * The id of a font is derived from the content of its file, see
+ * {@link FontPayload.Key}, so that it does not change when the font list
+ * changes. Fonts that have never been loaded have no id yet.
+ * Responses are cached as encoded bytes and carry an ETag, so that repeated
+ * requests neither render nor encode again.
+ *
+ * @author Andrej Golovnin
+ */
+final class PreviewServer {
+
+    private static final long CACHE_SIZE = 64L * 1024 * 1024;
+    private static final int RENDER_QUEUE_SIZE = 256;
+
+    private final Supplier<List<FontModel>> fonts;
+    private final ByteCache cache = new ByteCache(CACHE_SIZE);
+    private final Map<String, CompletableFuture<byte[]>> inFlight = new ConcurrentHashMap<>();
+    private HttpServer server;
+    private ExecutorService requestExecutor;
+    private ThreadPoolExecutor renderExecutor;
+
+    /**
+     * @param fonts supplies a thread safe snapshot of the font list
+     */
+    PreviewServer(Supplier<List<FontModel>> fonts) {
+        this.fonts = requireNonNull(fonts, "fonts may not be null");
+    }
+
+    synchronized void start(int port) throws IOException {
+        if (server != null) {
+            return;
+        }
+        int threads = Runtime.getRuntime().availableProcessors();
+        requestExecutor = Executors.newFixedThreadPool(Math.max(4, threads * 2), daemonThreads("preview-http"));
+        renderExecutor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(RENDER_QUEUE_SIZE), daemonThreads("preview-render"));
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        server.setExecutor(requestExecutor);
+        server.createContext("/fonts", this::handle);
+        server.start();
+    }
+
+    synchronized void stop() {
+        if (server == null) {
+            return;
+        }
+        server.stop(0);
+        requestExecutor.shutdownNow();
+        renderExecutor.shutdownNow();
+        server = null;
+    }
+
+    synchronized boolean isRunning() {
+        return server != null;
+    }
+
+    synchronized int getPort() {
+        return server != null ? server.getAddress().getPort() : -1;
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                sendError(exchange, 405, "Only GET is supported");
+                return;
+            }
+            URI uri = exchange.getRequestURI();
+            String[] path = uri.getPath().split("/");
+            // path[0] is empty, path[1] is "fonts"
+            if (path.length == 2) {
+                sendUncached(exchange, "application/json", fontsJson());
+                return;
+            }
+            FontModel fm = fontWithId(path[2]);
+            if (fm == null) {
+                sendError(exchange, 404, "Unknown font: " + path[2]);
+                return;
+            }
+            if (path.length == 4 && "coverage".equals(path[3])) {
+                FontSnapshot snapshot = fm.getSnapshot();
+                BitSet coverage = snapshot.getCoverage();
+                if (coverage == null) {
+                    sendError(exchange, 503, "Font not loaded yet: " + path[2]);
+                    return;
+                }
+                String key = "coverage/" + fontKey(snapshot);
+                send(exchange, "application/json", key, () -> coverageJson(coverage));
+            } else if (path.length == 5 && "glyph".equals(path[3]) && path[4].endsWith(".png")) {
+                sendGlyph(exchange, fm, path[4].substring(0, path[4].length() - 4),
+                        parseQuery(uri.getRawQuery()));
+            } else {
+                sendError(exchange, 404, "Not found: " + uri.getPath());
+            }
+        } catch (RejectedExecutionException e) {
+            exchange.getResponseHeaders().set("Retry-After", "1");
+            sendError(exchange, 503, "Too many rendering requests");
+        } catch (IllegalArgumentException e) {
+            sendError(exchange, 400, e.getMessage());
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void sendGlyph(HttpExchange exchange, FontModel fm, String hex,
+                           Map<String, String> query) throws IOException
+    {
+        int codePoint = Integer.parseInt(hex, 16);
+        if (!Character.isValidCodePoint(codePoint)) {
+            throw new IllegalArgumentException("Invalid code point: " + hex);
+        }
+        Dpi dpi = parseDpi(query.getOrDefault("dpi", "96"));
+        int sizeIndex = parseSize(query.getOrDefault("size", "default"));
+        boolean gasp = "gasp".equals(query.getOrDefault("hint", "default"));
+        // The fonts and the key must belong to the same snapshot.
+        FontSnapshot snapshot = fm.getSnapshot();
+        Fonts dpiFonts = dpi.fontsOf(snapshot);
+        if (dpiFonts == null) {
+            exchange.getResponseHeaders().set("Retry-After", "5");
+            sendError(exchange, 503, "The font is evicted, select it in the viewer");
+            return;
+        }
+        Font font = dpiFonts.toArray()[sizeIndex];
+        String key = "glyph/" + fontKey(snapshot) + "/" + codePoint + "/" + dpi.getDpi()
+                + "/" + sizeIndex + "/" + gasp;
+        send(exchange, "image/png", key, () -> encodePng(font, codePoint, gasp));
+    }
+
+    // Serves the cached bytes, renders them at most once per key otherwise.
+    private void send(HttpExchange exchange, String contentType, String key,
+                      Supplier<byte[]> producer) throws IOException
+    {
+        // The key identifies the font version and all rendering parameters.
+        String etag = "\"" + key + "\"";
+        Headers headers = exchange.getResponseHeaders();
+        headers.set("ETag", etag);
+        headers.set("Cache-Control", "no-cache");
+        if (matchesAny(exchange.getRequestHeaders().get("If-None-Match"), etag)) {
+            exchange.sendResponseHeaders(304, -1);
+            return;
+        }
+        byte[] body = cache.get(key);
+        if (body == null) {
+            CompletableFuture<byte[]> future = inFlight.computeIfAbsent(key,
+                    k -> CompletableFuture.supplyAsync(producer, renderExecutor));
+            try {
+                body = future.join();
+                cache.put(key, body);
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof RejectedExecutionException) {
+                    throw (RejectedExecutionException) e.getCause();
+                }
+                headers.remove("ETag");
+                sendError(exchange, 500, String.valueOf(e.getCause()));
+                return;
+            } finally {
+                inFlight.remove(key, future);
+            }
+        }
+        headers.set("Content-Type", contentType);
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    // Parses the entity tags of If-None-Match headers, "*" matches any tag.
+    // If-None-Match uses the weak comparison, so "W/" prefixes are ignored.
+    private static boolean matchesAny(List<String> headerValues, String etag) {
+        if (headerValues == null) {
+            return false;
+        }
+        for (String value : headerValues) {
+            int i = 0;
+            int n = value.length();
+            while (i < n) {
+                char c = value.charAt(i);
+                if (c == ',' || c == ' ' || c == '\t') {
+                    i++;
+                    continue;
+                }
+                if (c == '*') {
+                    return true;
+                }
+                if (value.startsWith("W/", i)) {
+                    i += 2;
+                }
+                int end;
+                if (i < n && value.charAt(i) == '"') {
+                    end = value.indexOf('"', i + 1);
+                    end = end < 0 ? n : end + 1;
+                } else {
+                    end = value.indexOf(',', i);
+                    end = end < 0 ? n : end;
+                }
+                if (value.substring(i, end).trim().equals(etag)) {
+                    return true;
+                }
+                i = end;
+            }
+        }
+        return false;
+    }
+
+    private static void sendUncached(HttpExchange exchange, String contentType,
+                                     String body) throws IOException
+    {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", contentType + "; charset=utf-8");
+        exchange.sendResponseHeaders(200, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private static void sendError(HttpExchange exchange, int status, String message)
+            throws IOException
+    {
+        byte[] bytes = message.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private FontModel fontWithId(String id) {
+        FontPayload.Key key = FontPayload.Key.valueOf(id);
+        for (FontModel fm : fonts.get()) {
+            if (key.equals(fm.getSnapshot().getContentKey())) {
+                return fm;
+            }
+        }
+        return null;
+    }
+
+    // Identifies the content of the font, so that the tags remain valid
+    // after reloads of an unchanged file and restarts of the viewer.
+    private static String fontKey(FontSnapshot snapshot) {
+        return String.valueOf(snapshot.getContentKey());
+    }
+
+    private String fontsJson() {
+        List<FontModel> models = fonts.get();
+        StringBuilder sb = new StringBuilder("[");
+        for (int i = 0; i < models.size(); i++) {
+            FontModel fm = models.get(i);
+            FontSnapshot snapshot = fm.getSnapshot();
+            BitSet coverage = snapshot.getCoverage();
+            if (i > 0) {
+                sb.append(',');
+            }
+            FontPayload.Key key = snapshot.getContentKey();
+            sb.append("{\"id\":").append(key != null ? jsonString(key.toString()) : "null")
+              .append(",\"name\":").append(jsonString(fm.toString()))
+              .append(",\"file\":").append(jsonString(fm.getFile().getName()))
+              .append(",\"glyphs\":").append(coverage != null ? coverage.cardinality() : 0)
+              .append(",\"evicted\":").append(snapshot.isEvicted())
+              .append('}');
+        }
+        return sb.append(']').toString();
+    }
+
+    private static byte[] coverageJson(BitSet coverage) {
+        StringBuilder sb = new StringBuilder("{\"ranges\":[");
+        int start = coverage.nextSetBit(0);
+        boolean first = true;
+        while (start >= 0) {
+            int end = coverage.nextClearBit(start) - 1;
+            sb.append(first ? "" : ",").append('[').append(start).append(',').append(end).append(']');
+            first = false;
+            start = coverage.nextSetBit(end + 1);
+        }
+        return sb.append("]}").toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static byte[] encodePng(Font font, int codePoint, boolean gasp) {
+        String text = new String(Character.toChars(codePoint));
+        ByteArrayOutputStream out = new ByteArrayOutputStream(1024);
+        try {
+            ImageIO.write(GlyphRenderer.render(font, text, gasp, Color.BLACK, Color.WHITE),
+                    "png", out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+
+    private static String jsonString(String s) {
+        StringBuilder sb = new StringBuilder("\"");
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c == '"' || c == '\\') {
+                sb.append('\\').append(c);
+            } else if (c < 0x20) {
+                sb.append(String.format("\\u%04x", (int) c));
+            } else {
+                sb.append(c);
+            }
+        }
+        return sb.append('"').toString();
+    }
+
+    private static Dpi parseDpi(String value) {
+        for (Dpi dpi : Dpi.values()) {
+            if (String.valueOf(dpi.getDpi()).equals(value)) {
+                return dpi;
+            }
+        }
+        throw new IllegalArgumentException("Unsupported dpi: " + value);
+    }
+
+    private static int parseSize(String value) {
+        for (int i = 0; i < Fonts.SIZE_NAMES.length; i++) {
+            if (Fonts.SIZE_NAMES[i].equals(value)) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException("Unsupported size: " + value);
+    }
+
+    private static Map<String, String> parseQuery(String rawQuery) {
+        Map<String, String> params = new HashMap<>();
+        if (rawQuery != null) {
+            for (String pair : rawQuery.split("&")) {
+                int eq = pair.indexOf('=');
+                if (eq > 0) {
+                    params.put(pair.substring(0, eq), pair.substring(eq + 1));
+                }
+            }
+        }
+        return params;
+    }
+
+    private static ThreadFactory daemonThreads(String name) {
+        return r -> {
+            Thread t = new Thread(r, name);
+            t.setDaemon(true);
+            return t;
+        };
+    }
+
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright (c) 2015, Andrej Golovnin
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  Redistributions of source code must retain the above copyright notice, this
+ *  list of conditions and the following disclaimer.
+ *
+ *  Redistributions in binary form must reproduce the above copyright notice,
+ *  this list of conditions and the following disclaimer in the documentation
+ *  and/or other materials provided with the distribution.
+ *
+ *  Neither the name of fontviewer nor the names of its
+ *  contributors may be used to endorse or promote products derived from
+ *  this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.github.golovnin.fontviewer;
+
+import com.jgoodies.forms.builder.ButtonBarBuilder;
+import com.jgoodies.forms.builder.FormBuilder;
+import com.jgoodies.forms.factories.Paddings;
+
+import javax.swing.AbstractAction;
+import javax.swing.JDialog;
+import javax.swing.JLabel;
+import javax.swing.JOptionPane;
+import javax.swing.JProgressBar;
+import javax.swing.SwingWorker;
+import javax.swing.WindowConstants;
+import java.awt.event.ActionEvent;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Shows the progress of a background job and lets the user cancel it.
+ * The dialog closes itself when the job is done.
+ *
+ * @author Andrej Golovnin
+ */
+final class ProgressDialog {
+
+    private final String title;
+    private final SwingWorker<?, ?> worker;
+
+    ProgressDialog(String title, SwingWorker<?, ?> worker) {
+        this.title = requireNonNull(title, "title may not be null");
+        this.worker = requireNonNull(worker, "worker may not be null");
+    }
+
+    /**
+     * Opens the dialog and starts the worker.
+     */
+    void start() {
+        JDialog dialog = new JDialog(JOptionPane.getRootFrame(), title);
+        dialog.setDefaultCloseOperation(WindowConstants.DO_NOTHING_ON_CLOSE);
+        JProgressBar bar = new JProgressBar(0, 100);
+        bar.setStringPainted(true);
+        JLabel label = new JLabel(title + "\u2026");
+        dialog.setContentPane(FormBuilder.create()
+            .columns("f:200dlu:g")
+            .rows("p, $rg, p, $ug, p")
+            .padding(Paddings.DIALOG)
+
+            .add(label)                             .xy(1, 1)
+            .add(bar)                               .xy(1, 3)
+            .add(ButtonBarBuilder.create()
+                    .addGlue()
+                    .addButton(new CancelAction())
+                    .build())                       .xy(1, 5)
+            .build());
+        worker.addPropertyChangeListener(evt -> {
+            if ("progress".equals(evt.getPropertyName())) {
+                bar.setValue((Integer) evt.getNewValue());
+            } else if (worker.isDone()) {
+                dialog.dispose();
+            }
+        });
+        dialog.pack();
+        dialog.setLocationRelativeTo(JOptionPane.getRootFrame());
+        dialog.setVisible(true);
+        worker.execute();
+    }
+
+    private final class CancelAction extends AbstractAction {
+
+        CancelAction() {
+            super("Cancel");
+        }
+
+        @Override
+        public void actionPerformed(ActionEvent e) {
+            worker.cancel(true);
+        }
+    }
+
+}
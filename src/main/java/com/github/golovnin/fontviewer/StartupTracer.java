@@ -0,0 +1,112 @@
+/*
+ * Copyright (c) 2015, Andrej Golovnin
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  Redistributions of source code must retain the above copyright notice, this
+ *  list of conditions and the following disclaimer.
+ *
+ *  Redistributions in binary form must reproduce the above copyright notice,
+ *  this list of conditions and the following disclaimer in the documentation
+ *  and/or other materials provided with the distribution.
+ *
+ *  Neither the name of fontviewer nor the names of its
+ *  contributors may be used to endorse or promote products derived from
+ *  this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.github.golovnin.fontviewer;
+
+import javax.swing.JComponent;
+import javax.swing.JPanel;
+import java.awt.BorderLayout;
+import java.awt.Graphics;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Records the time from the start of {@code main} to the end of every
+ * startup phase and reports it when the main window paints its first frame.
+ * The report warns when the total exceeds the budget given in milliseconds
+ * by the system property {@code fontviewer.startupBudget}.
+ *
+ * @author Andrej Golovnin
+ */
+final class StartupTracer {
+
+    private static final long BUDGET_MILLIS = Long.getLong("fontviewer.startupBudget", 1000L);
+
+    private static final List<String> phases = new ArrayList<>();
+    private static final List<Long> timestamps = new ArrayList<>();
+    private static long start;
+    private static boolean reported;
+
+    private StartupTracer() {
+        // Utility class
+    }
+
+    static synchronized void start() {
+        start = System.nanoTime();
+    }
+
+    static synchronized void mark(String phase) {
+        if (!reported) {
+            phases.add(phase);
+            timestamps.add(System.nanoTime());
+        }
+    }
+
+    /**
+     * Wraps the content of the main window, so that its first paint
+     * completes the trace.
+     */
+    static JComponent wrap(JComponent content) {
+        JPanel panel = new JPanel(new BorderLayout()) {
+            @Override
+            protected void paintComponent(Graphics g) {
+                super.paintComponent(g);
+                firstPaint();
+            }
+        };
+        panel.add(content, BorderLayout.CENTER);
+        return panel;
+    }
+
+    private static synchronized void firstPaint() {
+        if (reported) {
+            return;
+        }
+        mark("first paint");
+        reported = true;
+        long previous = start;
+        for (int i = 0; i < phases.size(); i++) {
+            long timestamp = timestamps.get(i);
+            System.out.printf("Startup: %-16s %6d ms (+%d ms)%n", phases.get(i),
+                    toMillis(timestamp - start), toMillis(timestamp - previous));
+            previous = timestamp;
+        }
+        long total = toMillis(previous - start);
+        if (total > BUDGET_MILLIS) {
+            System.out.println("Startup: " + total + " ms exceeds the budget of "
+                    + BUDGET_MILLIS + " ms");
+        }
+    }
+
+    private static long toMillis(long nanos) {
+        return nanos / 1_000_000;
+    }
+
+}
@@ -0,0 +1,262 @@
+/*
+ * Copyright (c) 2015, Andrej Golovnin
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  Redistributions of source code must retain the above copyright notice, this
+ *  list of conditions and the following disclaimer.
+ *
+ *  Redistributions in binary form must reproduce the above copyright notice,
+ *  this list of conditions and the following disclaimer in the documentation
+ *  and/or other materials provided with the distribution.
+ *
+ *  Neither the name of fontviewer nor the names of its
+ *  contributors may be used to endorse or promote products derived from
+ *  this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.github.golovnin.fontviewer;
+
+import com.github.golovnin.fontviewer.FontSubsetter.Subset;
+import com.jgoodies.binding.value.ValueHolder;
+import com.jgoodies.forms.builder.ButtonBarBuilder;
+import com.jgoodies.forms.builder.FormBuilder;
+import com.jgoodies.forms.factories.Paddings;
+
+import javax.swing.*;
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.Insets;
+import java.awt.event.ActionEvent;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Lets the user choose the code points of a font subset from the glyph
+ * list, from a text or from a corpus and exports the subset in the
+ * background, see {@link FontSubsetter}.
+ *
+ * @author Andrej Golovnin
+ */
+final class SubsetExportView {
+
+    private final FontModel fontModel;
+    private final FontSnapshot snapshot;
+    private final JList<String> glyphList;
+    private final JLabel selectionLabel = new JLabel();
+
+    private SubsetExportView(FontModel fontModel, int selectedIndex) {
+        this.fontModel = fontModel;
+        this.snapshot = fontModel.getSnapshot();
+        List<String> glyphs = snapshot.getGlyphs();
+        this.glyphList = new JList<>(glyphs.toArray(new String[glyphs.size()]));
+        if (selectedIndex >= 0 && selectedIndex < glyphs.size()) {
+            glyphList.setSelectedIndex(selectedIndex);
+        }
+    }
+
+    /**
+     * @param selectedIndex the index of the glyph to preselect, -1 for none
+     */
+    static void export(FontModel fontModel, int selectedIndex) {
+        requireNonNull(fontModel, "fontModel may not be null");
+        new SubsetExportView(fontModel, selectedIndex).show();
+    }
+
+    private void show() {
+        JDialog dialog = new JDialog(JOptionPane.getRootFrame(), "Export Subset :: " + fontModel);
+        dialog.setDefaultCloseOperation(WindowConstants.DISPOSE_ON_CLOSE);
+        dialog.setContentPane(createView(dialog));
+        dialog.pack();
+        dialog.setLocationRelativeTo(JOptionPane.getRootFrame());
+        dialog.setVisible(true);
+    }
+
+    private JComponent createView(JDialog dialog) {
+        GlyphListCellRenderer r = new GlyphListCellRenderer(new ValueHolder(fontModel.isForceGaspHint()));
+        r.setHorizontalAlignment(SwingConstants.CENTER);
+        glyphList.setCellRenderer(r);
+        Font font = snapshot.getDefaultFont();
+        glyphList.setFont(font);
+        // A fixed cell size avoids measuring every glyph to lay out the list.
+        FontMetrics fm = glyphList.getFontMetrics(font);
+        Insets insets = r.getInsets();
+        int advance = fm.getMaxAdvance() > 0 ? fm.getMaxAdvance() : font.getSize();
+        glyphList.setFixedCellWidth(advance + insets.left + insets.right);
+        glyphList.setFixedCellHeight(fm.getHeight() + insets.top + insets.bottom);
+        glyphList.setSelectionMode(ListSelectionModel.MULTIPLE_INTERVAL_SELECTION);
+        glyphList.setLayoutOrientation(JList.HORIZONTAL_WRAP);
+        glyphList.setVisibleRowCount(0);
+        glyphList.addListSelectionListener(e -> updateSelectionLabel());
+        updateSelectionLabel();
+
+        JTextField textField = new JTextField();
+        textField.setToolTipText("Selects the glyphs of all characters in the text");
+        textField.addActionListener(e -> select(textField.getText()));
+
+        return FormBuilder.create()
+            .columns("p, $lcg, f:0:g, $lcg, p")
+            .rows("p, $rg, f:180dlu:g, $rg, p, $ug, p")
+            .padding(Paddings.DIALOG)
+
+            .add("Select the glyphs to keep, composite glyphs keep their components.") .xyw(1, 1, 5)
+            .add(MainView.createScrollPane(glyphList))   .xyw(1, 3, 5)
+            .add("Text:")                                .xy(1, 5)
+            .add(textField)                              .xy(3, 5)
+            .add(new JButton(new AbstractAction("Select") {
+                @Override
+                public void actionPerformed(ActionEvent e) {
+                    select(textField.getText());
+                }
+            }))                                          .xy(5, 5)
+            .add(createButtonBar(dialog))                .xyw(1, 7, 5)
+            .build();
+    }
+
+    private JComponent createButtonBar(JDialog dialog) {
+        return ButtonBarBuilder.create()
+            .addButton(new AbstractAction("Select Corpus\u2026") {
+                @Override
+                public void actionPerformed(ActionEvent e) {
+                    CorpusView.scanCorpus(histogram -> select(histogram.getCodePoints()));
+                }
+            })
+            .addRelatedGap()
+            .addButton(new AbstractAction("Clear") {
+                @Override
+                public void actionPerformed(ActionEvent e) {
+                    glyphList.clearSelection();
+                }
+            })
+            .addGlue()
+            .addFixed(selectionLabel)
+            .addUnrelatedGap()
+            .addButton(new AbstractAction("Export\u2026") {
+                @Override
+                public void actionPerformed(ActionEvent e) {
+                    exportSelection();
+                }
+            }, new AbstractAction("Close") {
+                @Override
+                public void actionPerformed(ActionEvent e) {
+                    dialog.dispose();
+                }
+            })
+            .build();
+    }
+
+    private void select(String text) {
+        BitSet codePoints = new BitSet();
+        text.codePoints().forEach(codePoints::set);
+        select(codePoints);
+    }
+
+    // Adds the covered code points to the selection.
+    private void select(BitSet codePoints) {
+        int[] covered = snapshot.getCodePoints();
+        ListSelectionModel selection = glyphList.getSelectionModel();
+        selection.setValueIsAdjusting(true);
+        try {
+            for (int cp = codePoints.nextSetBit(0); cp >= 0; cp = codePoints.nextSetBit(cp + 1)) {
+                int index = GlyphSearch.findCodePoint(covered, cp);
+                if (index >= 0) {
+                    selection.addSelectionInterval(index, index);
+                }
+            }
+        } finally {
+            selection.setValueIsAdjusting(false);
+        }
+    }
+
+    private BitSet getSelectedCodePoints() {
+        int[] covered = snapshot.getCodePoints();
+        BitSet codePoints = new BitSet();
+        for (int index : glyphList.getSelectedIndices()) {
+            codePoints.set(covered[index]);
+        }
+        return codePoints;
+    }
+
+    private void updateSelectionLabel() {
+        int count = 0;
+        ListSelectionModel selection = glyphList.getSelectionModel();
+        if (!selection.isSelectionEmpty()) {
+            for (int i = selection.getMinSelectionIndex(); i <= selection.getMaxSelectionIndex(); i++) {
+                if (selection.isSelectedIndex(i)) {
+                    count++;
+                }
+            }
+        }
+        selectionLabel.setText(String.format("%,d of %,d selected", count, snapshot.getCodePoints().length));
+    }
+
+    private void exportSelection() {
+        BitSet codePoints = getSelectedCodePoints();
+        if (codePoints.isEmpty()) {
+            return;
+        }
+        File source = fontModel.getFile();
+        JFileChooser chooser = new JFileChooser(source.getParentFile());
+        String name = source.getName();
+        int dot = name.lastIndexOf('.');
+        chooser.setSelectedFile(new File(source.getParentFile(),
+                (dot > 0 ? name.substring(0, dot) : name) + "-subset.ttf"));
+        if (chooser.showSaveDialog(JOptionPane.getRootFrame()) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        File target = chooser.getSelectedFile();
+        if (target.getAbsoluteFile().equals(source.getAbsoluteFile())) {
+            JOptionPane.showMessageDialog(JOptionPane.getRootFrame(),
+                    "The subset may not replace the font file.", "Export subset",
+                    JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+        new ProgressDialog("Exporting subset", new SwingWorker<Subset, Void>() {
+            @Override
+            protected Subset doInBackground() throws IOException {
+                Subset subset = FontSubsetter.subset(source, codePoints);
+                Files.write(target.toPath(), subset.getData());
+                return subset;
+            }
+
+            @Override
+            protected void done() {
+                try {
+                    Subset subset = get();
+                    JOptionPane.showMessageDialog(JOptionPane.getRootFrame(),
+                            String.format("%,d code points, %,d glyphs, %,d bytes written to %s",
+                                    subset.getCodePointCount(), subset.getGlyphCount(),
+                                    subset.getData().length, target),
+                            "Export subset", JOptionPane.INFORMATION_MESSAGE);
+                } catch (CancellationException | InterruptedException e) {
+                    // Cancelled by the user
+                } catch (ExecutionException e) {
+                    JOptionPane.showMessageDialog(JOptionPane.getRootFrame(),
+                            e.getCause().toString(), "Subset export failed",
+                            JOptionPane.ERROR_MESSAGE);
+                }
+            }
+        }).start();
+    }
+
+}
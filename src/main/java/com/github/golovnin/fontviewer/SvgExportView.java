@@ -0,0 +1,105 @@
+/*
+ * Copyright (c) 2015, Andrej Golovnin
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  Redistributions of source code must retain the above copyright notice, this
+ *  list of conditions and the following disclaimer.
+ *
+ *  Redistributions in binary form must reproduce the above copyright notice,
+ *  this list of conditions and the following disclaimer in the documentation
+ *  and/or other materials provided with the distribution.
+ *
+ *  Neither the name of fontviewer nor the names of its
+ *  contributors may be used to endorse or promote products derived from
+ *  this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.github.golovnin.fontviewer;
+
+import javax.swing.JFileChooser;
+import javax.swing.JOptionPane;
+import javax.swing.SwingWorker;
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Asks for the kind and the target of an SVG export and runs it in the
+ * background.
+ *
+ * @author Andrej Golovnin
+ */
+final class SvgExportView {
+
+    private static final String SPRITE = "Sprite Sheet";
+    private static final String FILES  = "One File per Glyph";
+
+    private SvgExportView() {
+        // Utility class
+    }
+
+    static void export(FontModel fm) {
+        Object[] options = { SPRITE, FILES };
+        int option = JOptionPane.showOptionDialog(JOptionPane.getRootFrame(),
+                "Export the outlines of all glyphs of " + fm + " as",
+                "Export SVG", JOptionPane.DEFAULT_OPTION, JOptionPane.QUESTION_MESSAGE,
+                null, options, SPRITE);
+        if (option < 0) {
+            return;
+        }
+        boolean sprite = option == 0;
+        JFileChooser chooser = new JFileChooser();
+        if (sprite) {
+            chooser.setSelectedFile(new File(fm + ".svg"));
+        } else {
+            chooser.setFileSelectionMode(JFileChooser.DIRECTORIES_ONLY);
+        }
+        if (chooser.showSaveDialog(JOptionPane.getRootFrame()) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        FontSnapshot snapshot = fm.getSnapshot();
+        SvgExporter exporter = new SvgExporter(snapshot.getDefaultFont(), snapshot.getCodePoints());
+        File target = chooser.getSelectedFile();
+        new ProgressDialog("Exporting SVG", new SwingWorker<Void, Void>() {
+            @Override
+            protected Void doInBackground() throws IOException, InterruptedException {
+                int total = Math.max(exporter.getGlyphCount(), 1);
+                if (sprite) {
+                    exporter.exportSprite(target.toPath(), done -> setProgress(done * 100 / total));
+                } else {
+                    exporter.exportFiles(target.toPath(), done -> setProgress(done * 100 / total));
+                }
+                return null;
+            }
+
+            @Override
+            protected void done() {
+                try {
+                    get();
+                } catch (CancellationException | InterruptedException e) {
+                    // Cancelled by the user
+                } catch (ExecutionException e) {
+                    JOptionPane.showMessageDialog(JOptionPane.getRootFrame(),
+                            e.getCause().toString(), "SVG export failed",
+                            JOptionPane.ERROR_MESSAGE);
+                }
+            }
+        }).start();
+    }
+
+}
@@ -0,0 +1,303 @@
+/*
+ * Copyright (c) 2015, Andrej Golovnin
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  Redistributions of source code must retain the above copyright notice, this
+ *  list of conditions and the following disclaimer.
+ *
+ *  Redistributions in binary form must reproduce the above copyright notice,
+ *  this list of conditions and the following disclaimer in the documentation
+ *  and/or other materials provided with the distribution.
+ *
+ *  Neither the name of fontviewer nor the names of its
+ *  contributors may be used to endorse or promote products derived from
+ *  this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.github.golovnin.fontviewer;
+
+import java.awt.Font;
+import java.awt.Shape;
+import java.awt.font.FontRenderContext;
+import java.awt.font.GlyphVector;
+import java.awt.font.LineMetrics;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.PathIterator;
+import java.awt.geom.Point2D;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntConsumer;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Exports glyph outlines as SVG, either as one file per glyph or as a
+ * sprite sheet with one {@code symbol} per glyph. The code points are split
+ * into ranges, which are exported in parallel with one glyph vector each.
+ * Outlines are written as soon as they are converted, a sprite sheet is
+ * assembled from one temporary part per range.
+ *
+ * @author Andrej Golovnin
+ */
+final class SvgExporter {
+
+    // Coordinates are in thousandths of an em.
+    static final float UNITS_PER_EM = 1000.0f;
+
+    private static final int RANGE_SIZE = 512;
+    private static final FontRenderContext FRC = new FontRenderContext(null, true, true);
+
+    private final Font font;
+    private final int[] codePoints;
+    private final float ascent;
+    private final float height;
+
+    SvgExporter(Font font, int[] codePoints) {
+        this.font = requireNonNull(font, "font may not be null").deriveFont(UNITS_PER_EM);
+        this.codePoints = requireNonNull(codePoints, "codePoints may not be null");
+        LineMetrics lm = this.font.getLineMetrics("", FRC);
+        this.ascent = lm.getAscent();
+        this.height = lm.getAscent() + lm.getDescent();
+    }
+
+    int getGlyphCount() {
+        return codePoints.length;
+    }
+
+    /**
+     * Writes one SVG file per glyph into the directory.
+     */
+    void exportFiles(Path directory, IntConsumer progress)
+            throws IOException, InterruptedException
+    {
+        Files.createDirectories(directory);
+        run(progress, (from, to, gv) -> {
+            int charIndex = 0;
+            for (int i = from; i < to; i++) {
+                StringBuilder sb = new StringBuilder(1024);
+                float advance = appendGlyph(sb, gv, charIndex, i, null);
+                Path file = directory.resolve(String.format("U+%04X.svg", codePoints[i]));
+                try (Writer out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+                    out.write("<svg xmlns=\"http://www.w3.org/2000/svg\" viewBox=\"0 ");
+                    out.write(format(-ascent) + " " + format(Math.max(advance, 1)) + " " + format(height));
+                    out.write("\">\n");
+                    out.append(sb).write("</svg>\n");
+                }
+                charIndex += Character.charCount(codePoints[i]);
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Writes all glyphs into a single sprite sheet.
+     */
+    void exportSprite(Path file, IntConsumer progress) throws IOException, InterruptedException {
+        // Parts of failed or cancelled exports are deleted as well.
+        List<Path> created = Collections.synchronizedList(new ArrayList<>());
+        try {
+            List<Path> parts = run(progress, (from, to, gv) -> {
+                Path part = Files.createTempFile("svg-sprite", ".part");
+                created.add(part);
+                try (Writer out = Files.newBufferedWriter(part, StandardCharsets.UTF_8)) {
+                    int charIndex = 0;
+                    StringBuilder sb = new StringBuilder(1024);
+                    for (int i = from; i < to; i++) {
+                        sb.setLength(0);
+                        String id = String.format("u%04X", codePoints[i]);
+                        appendGlyph(sb, gv, charIndex, i, id);
+                        out.append(sb);
+                        charIndex += Character.charCount(codePoints[i]);
+                    }
+                }
+                return part;
+            });
+            try (OutputStream out = Files.newOutputStream(file)) {
+                out.write(("<svg xmlns=\"http://www.w3.org/2000/svg\">\n<title>"
+                        + escape(font.getFontName()) + "</title>\n").getBytes(StandardCharsets.UTF_8));
+                for (Path part : parts) {
+                    Files.copy(part, out);
+                }
+                out.write("</svg>\n".getBytes(StandardCharsets.UTF_8));
+            }
+        } finally {
+            synchronized (created) {
+                for (Path part : created) {
+                    Files.deleteIfExists(part);
+                }
+            }
+        }
+    }
+
+    // Appends a path element, or a symbol if an id is given, and returns the advance.
+    private float appendGlyph(StringBuilder sb, GlyphVector gv, int charIndex,
+                              int index, String id)
+    {
+        Point2D position = gv.getGlyphPosition(charIndex);
+        float advance = gv.getGlyphMetrics(charIndex).getAdvanceX();
+        Shape outline = gv.getGlyphOutline(charIndex);
+        AffineTransform toOrigin = AffineTransform.getTranslateInstance(
+                -position.getX(), -position.getY());
+        if (id != null) {
+            sb.append("<symbol id=\"").append(id).append("\" viewBox=\"0 ")
+              .append(format(-ascent)).append(' ').append(format(Math.max(advance, 1)))
+              .append(' ').append(format(height)).append("\">");
+        }
+        sb.append("<path d=\"");
+        appendPath(sb, outline.getPathIterator(toOrigin));
+        sb.append("\"/>");
+        if (id != null) {
+            sb.append("</symbol>");
+        }
+        sb.append(String.format("<!-- U+%04X -->%n", codePoints[index]));
+        return advance;
+    }
+
+    // Font names are arbitrary strings from the name table.
+    private static String escape(String text) {
+        StringBuilder sb = new StringBuilder(text.length());
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            switch (c) {
+                case '&': sb.append("&amp;"); break;
+                case '<': sb.append("&lt;"); break;
+                case '>': sb.append("&gt;"); break;
+                default:
+                    // Control characters are not allowed in XML 1.0.
+                    if (c >= 0x20 || c == '\t' || c == '\n' || c == '\r') {
+                        sb.append(c);
+                    }
+            }
+        }
+        return sb.toString();
+    }
+
+    private static void appendPath(StringBuilder sb, PathIterator it) {
+        float[] c = new float[6];
+        while (!it.isDone()) {
+            switch (it.currentSegment(c)) {
+                case PathIterator.SEG_MOVETO:
+                    appendSegment(sb, 'M', c, 2);
+                    break;
+                case PathIterator.SEG_LINETO:
+                    appendSegment(sb, 'L', c, 2);
+                    break;
+                case PathIterator.SEG_QUADTO:
+                    appendSegment(sb, 'Q', c, 4);
+                    break;
+                case PathIterator.SEG_CUBICTO:
+                    appendSegment(sb, 'C', c, 6);
+                    break;
+                case PathIterator.SEG_CLOSE:
+                    sb.append('Z');
+                    break;
+                default:
+                    break;
+            }
+            it.next();
+        }
+    }
+
+    private static void appendSegment(StringBuilder sb, char command, float[] coords, int count) {
+        sb.append(command);
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                sb.append(' ');
+            }
+            appendNumber(sb, coords[i]);
+        }
+    }
+
+    // Appends the number with at most one decimal, without String.format.
+    static void appendNumber(StringBuilder sb, float value) {
+        long tenths = Math.round(value * 10.0);
+        if (tenths < 0) {
+            sb.append('-');
+            tenths = -tenths;
+        }
+        sb.append(tenths / 10);
+        if (tenths % 10 != 0) {
+            sb.append('.').append(tenths % 10);
+        }
+    }
+
+    private static String format(float value) {
+        StringBuilder sb = new StringBuilder();
+        appendNumber(sb, value);
+        return sb.toString();
+    }
+
+    private interface RangeTask<T> {
+
+        T export(int from, int to, GlyphVector gv) throws IOException;
+    }
+
+    private <T> List<T> run(IntConsumer progress, RangeTask<T> task)
+            throws IOException, InterruptedException
+    {
+        AtomicInteger done = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(
+                Runtime.getRuntime().availableProcessors());
+        try {
+            List<Future<T>> futures = new ArrayList<>();
+            for (int from = 0; from < codePoints.length; from += RANGE_SIZE) {
+                int start = from;
+                int end = Math.min(from + RANGE_SIZE, codePoints.length);
+                futures.add(executor.submit(() -> {
+                    if (Thread.currentThread().isInterrupted()) {
+                        throw new InterruptedException();
+                    }
+                    int[] range = Arrays.copyOfRange(codePoints, start, end);
+                    GlyphVector gv = font.createGlyphVector(FRC, GlyphMetricsTable.toChars(range));
+                    T result = task.export(start, end, gv);
+                    progress.accept(done.addAndGet(end - start));
+                    return result;
+                }));
+            }
+            List<T> results = new ArrayList<>(futures.size());
+            for (Future<T> f : futures) {
+                results.add(f.get());
+            }
+            return results;
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof InterruptedException) {
+                throw (InterruptedException) cause;
+            }
+            throw new IOException(cause);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+}
@@ -0,0 +1,136 @@
+/*
+ * Copyright (c) 2015, Andrej Golovnin
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  Redistributions of source code must retain the above copyright notice, this
+ *  list of conditions and the following disclaimer.
+ *
+ *  Redistributions in binary form must reproduce the above copyright notice,
+ *  this list of conditions and the following disclaimer in the documentation
+ *  and/or other materials provided with the distribution.
+ *
+ *  Neither the name of fontviewer nor the names of its
+ *  contributors may be used to endorse or promote products derived from
+ *  this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.github.golovnin.fontviewer;
+
+import java.awt.Font;
+import java.awt.font.FontRenderContext;
+import java.awt.font.LineBreakMeasurer;
+import java.awt.font.TextAttribute;
+import java.awt.font.TextLayout;
+import java.text.AttributedCharacterIterator;
+import java.text.AttributedString;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * A bounded LRU cache of line broken text layouts keyed by the text, the
+ * font, the wrapping width and the font render context. Fonts are compared
+ * by identity, because a reloaded font may be equal to its predecessor.
+ * Must be used on the EDT only.
+ *
+ * @author Andrej Golovnin
+ */
+final class TextLayoutCache {
+
+    private final Map<Key, List<TextLayout>> layouts;
+
+    TextLayoutCache(int maxEntries) {
+        this.layouts = new LinkedHashMap<Key, List<TextLayout>>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, List<TextLayout>> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    List<TextLayout> get(String text, Font font, float width, FontRenderContext frc) {
+        Key key = new Key(text, font, width, frc);
+        List<TextLayout> lines = layouts.get(key);
+        if (lines == null) {
+            lines = layout(text, font, width, frc);
+            layouts.put(key, lines);
+        }
+        return lines;
+    }
+
+    private static List<TextLayout> layout(String text, Font font, float width,
+                                           FontRenderContext frc)
+    {
+        List<TextLayout> lines = new ArrayList<>();
+        // Each paragraph is broken separately, empty lines keep their height.
+        for (String paragraph : text.split("\n", -1)) {
+            if (paragraph.isEmpty()) {
+                lines.add(new TextLayout(" ", font, frc));
+                continue;
+            }
+            AttributedString as = new AttributedString(paragraph);
+            as.addAttribute(TextAttribute.FONT, font);
+            AttributedCharacterIterator it = as.getIterator();
+            LineBreakMeasurer measurer = new LineBreakMeasurer(it, frc);
+            while (measurer.getPosition() < it.getEndIndex()) {
+                lines.add(measurer.nextLayout(Math.max(width, 1.0f)));
+            }
+        }
+        return Collections.unmodifiableList(lines);
+    }
+
+    private static final class Key {
+
+        private final String text;
+        private final Font font;
+        private final float width;
+        private final FontRenderContext frc;
+        private final int hash;
+
+        Key(String text, Font font, float width, FontRenderContext frc) {
+            this.text = text;
+            this.font = font;
+            this.width = width;
+            this.frc = frc;
+            this.hash = Objects.hash(text, System.identityHashCode(font), width, frc);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return width == other.width
+                && text.equals(other.text)
+                && font == other.font
+                && frc.equals(other.frc);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+}
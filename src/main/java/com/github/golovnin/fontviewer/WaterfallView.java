@@ -0,0 +1,321 @@
+/*
+ * Copyright (c) 2015, Andrej Golovnin
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  Redistributions of source code must retain the above copyright notice, this
+ *  list of conditions and the following disclaimer.
+ *
+ *  Redistributions in binary form must reproduce the above copyright notice,
+ *  this list of conditions and the following disclaimer in the documentation
+ *  and/or other materials provided with the distribution.
+ *
+ *  Neither the name of fontviewer nor the names of its
+ *  contributors may be used to endorse or promote products derived from
+ *  this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.github.golovnin.fontviewer;
+
+import com.jgoodies.binding.PresentationModel;
+import com.jgoodies.binding.value.ValueModel;
+import com.jgoodies.forms.builder.FormBuilder;
+import com.jgoodies.forms.factories.Paddings;
+
+import javax.swing.JComponent;
+import javax.swing.JTextArea;
+import javax.swing.Scrollable;
+import javax.swing.UIManager;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import java.awt.Dimension;
+import java.awt.Font;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.Insets;
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
+import java.awt.Toolkit;
+import java.awt.font.FontRenderContext;
+import java.awt.font.TextLayout;
+import java.util.List;
+import java.util.Map;
+
+import static java.awt.RenderingHints.KEY_TEXT_ANTIALIASING;
+import static java.awt.RenderingHints.VALUE_FRACTIONALMETRICS_OFF;
+import static java.awt.RenderingHints.VALUE_TEXT_ANTIALIAS_GASP;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Renders a sample text at every size and DPI factor of the selected font.
+ *
+ * @author Andrej Golovnin
+ */
+final class WaterfallView {
+
+    static final String DEFAULT_TEXT =
+            "The quick brown fox jumps over the lazy dog. 0123456789";
+
+    private static final FontRenderContext GASP_FRC = new FontRenderContext(
+            null, VALUE_TEXT_ANTIALIAS_GASP, VALUE_FRACTIONALMETRICS_OFF);
+
+    private final ValueModel forceGaspHintHolder;
+    private final PresentationModel<FontModel> fontModel;
+
+    WaterfallView(ValueModel forceGaspHintHolder, PresentationModel<FontModel> fontModel) {
+        this.forceGaspHintHolder = requireNonNull(forceGaspHintHolder, "forceGaspHintHolder may not be null");
+        this.fontModel = requireNonNull(fontModel, "fontModel may not be null");
+    }
+
+    JComponent createView() {
+        WaterfallPanel panel = new WaterfallPanel();
+        JTextArea textArea = new JTextArea(DEFAULT_TEXT, 3, 40);
+        textArea.setLineWrap(true);
+        textArea.setWrapStyleWord(true);
+        textArea.getDocument().addDocumentListener(new DocumentListener() {
+            @Override
+            public void insertUpdate(DocumentEvent e) {
+                panel.setText(textArea.getText());
+            }
+
+            @Override
+            public void removeUpdate(DocumentEvent e) {
+                panel.setText(textArea.getText());
+            }
+
+            @Override
+            public void changedUpdate(DocumentEvent e) {
+                // Attribute changes do not affect the plain text.
+            }
+        });
+
+        forceGaspHintHolder.addValueChangeListener(evt -> panel.invalidateRows());
+        for (Dpi dpi : Dpi.values()) {
+            fontModel.getModel(dpi.getPropertyName()).addValueChangeListener(
+                    evt -> panel.setFonts(dpi, (Fonts) evt.getNewValue()));
+            FontModel fm = fontModel.getBean();
+            panel.setFonts(dpi, fm != null ? dpi.fontsOf(fm.getSnapshot()) : null);
+        }
+
+        return FormBuilder.create()
+            .columns("f:0:g")
+            .rows("p, $rg, f:0:g")
+            .background(UIManager.getColor("List.background"))
+            .opaque(true)
+            .padding(Paddings.DIALOG)
+
+            .add(MainView.createScrollPane(textArea))   .xy(1, 1)
+            .add(MainView.createScrollPane(panel))      .xy(1, 3)
+            .build();
+    }
+
+    private final class WaterfallPanel extends JComponent implements Scrollable {
+
+        private static final int LABEL_WIDTH = 120;
+        private static final int ROW_GAP = 8;
+        private static final int DEFAULT_TEXT_WIDTH = 400;
+
+        private final TextLayoutCache cache = new TextLayoutCache(256);
+        private final Row[] rows;
+        private String text = DEFAULT_TEXT;
+
+        WaterfallPanel() {
+            int sizes = Fonts.SIZE_NAMES.length;
+            rows = new Row[Dpi.values().length * sizes];
+            for (Dpi dpi : Dpi.values()) {
+                for (int s = 0; s < sizes; s++) {
+                    rows[dpi.ordinal() * sizes + s] = new Row(dpi + ", " + Fonts.SIZE_NAMES[s]);
+                }
+            }
+            setOpaque(true);
+            setBackground(UIManager.getColor("List.background"));
+            setForeground(UIManager.getColor("List.foreground"));
+            setFont(UIManager.getFont("Label.font"));
+        }
+
+        void setText(String text) {
+            this.text = text;
+            invalidateRows();
+        }
+
+        void setFonts(Dpi dpi, Fonts fonts) {
+            int sizes = Fonts.SIZE_NAMES.length;
+            Font[] newFonts = fonts != null ? fonts.toArray() : new Font[sizes];
+            for (int s = 0; s < sizes; s++) {
+                rows[dpi.ordinal() * sizes + s].font = newFonts[s];
+            }
+            revalidate();
+            repaint();
+        }
+
+        void invalidateRows() {
+            revalidate();
+            repaint();
+        }
+
+        private FontRenderContext getRenderContext() {
+            return Boolean.TRUE.equals(forceGaspHintHolder.getValue())
+                 ? GASP_FRC
+                 : getFontMetrics(getFont()).getFontRenderContext();
+        }
+
+        // Lays out the rows whose text, font, width or render context changed.
+        private void layoutRows() {
+            Insets insets = getInsets();
+            float width = getWidth() - insets.left - insets.right - LABEL_WIDTH;
+            if (width <= 0) {
+                // Not laid out yet, avoid breaking after every character.
+                width = DEFAULT_TEXT_WIDTH;
+            }
+            FontRenderContext frc = getRenderContext();
+            for (Row row : rows) {
+                row.update(text, width, frc);
+            }
+        }
+
+        @Override
+        public Dimension getPreferredSize() {
+            layoutRows();
+            Insets insets = getInsets();
+            int height = insets.top + insets.bottom;
+            for (Row row : rows) {
+                height += row.height + ROW_GAP;
+            }
+            return new Dimension(LABEL_WIDTH * 4, height);
+        }
+
+        @Override
+        protected void paintComponent(Graphics g) {
+            g.setColor(getBackground());
+            g.fillRect(0, 0, getWidth(), getHeight());
+            layoutRows();
+
+            Graphics2D g2 = (Graphics2D) g.create();
+            try {
+                applyTextHints(g2);
+                Rectangle clip = g2.getClipBounds();
+                Insets insets = getInsets();
+                float y = insets.top;
+                for (Row row : rows) {
+                    if (clip == null || (y + row.height >= clip.y && y <= clip.y + clip.height)) {
+                        paintRow(g2, row, insets.left, y);
+                    }
+                    y += row.height + ROW_GAP;
+                }
+            } finally {
+                g2.dispose();
+            }
+        }
+
+        private void applyTextHints(Graphics2D g2) {
+            if (Boolean.TRUE.equals(forceGaspHintHolder.getValue())) {
+                g2.setRenderingHint(KEY_TEXT_ANTIALIASING, VALUE_TEXT_ANTIALIAS_GASP);
+            } else {
+                Map<?, ?> desktopHints = (Map<?, ?>) Toolkit.getDefaultToolkit()
+                        .getDesktopProperty("awt.font.desktophints");
+                if (desktopHints != null) {
+                    g2.addRenderingHints(desktopHints);
+                } else {
+                    g2.setRenderingHint(KEY_TEXT_ANTIALIASING,
+                            RenderingHints.VALUE_TEXT_ANTIALIAS_DEFAULT);
+                }
+            }
+        }
+
+        private void paintRow(Graphics2D g2, Row row, float x, float y) {
+            g2.setColor(getForeground());
+            g2.setFont(getFont());
+            g2.drawString(row.label, x, y + g2.getFontMetrics().getAscent());
+            if (row.lines == null) {
+                return;
+            }
+            float lineY = y;
+            for (TextLayout line : row.lines) {
+                lineY += line.getAscent();
+                line.draw(g2, x + LABEL_WIDTH, lineY);
+                lineY += line.getDescent() + line.getLeading();
+            }
+        }
+
+        @Override
+        public Dimension getPreferredScrollableViewportSize() {
+            return getPreferredSize();
+        }
+
+        @Override
+        public int getScrollableUnitIncrement(Rectangle visibleRect, int orientation, int direction) {
+            return 16;
+        }
+
+        @Override
+        public int getScrollableBlockIncrement(Rectangle visibleRect, int orientation, int direction) {
+            return visibleRect.height;
+        }
+
+        @Override
+        public boolean getScrollableTracksViewportWidth() {
+            return true;
+        }
+
+        @Override
+        public boolean getScrollableTracksViewportHeight() {
+            return false;
+        }
+
+        private final class Row {
+
+            private final String label;
+            private Font font;
+
+            // Inputs of the current layout, a changed input invalidates it.
+            private String layoutText;
+            private Font layoutFont;
+            private float layoutWidth;
+            private FontRenderContext layoutFrc;
+
+            private List<TextLayout> lines;
+            private float height;
+
+            Row(String label) {
+                this.label = label;
+            }
+
+            void update(String text, float width, FontRenderContext frc) {
+                if (text.equals(layoutText) && font == layoutFont
+                        && width == layoutWidth && frc.equals(layoutFrc))
+                {
+                    return;
+                }
+                layoutText = text;
+                layoutFont = font;
+                layoutWidth = width;
+                layoutFrc = frc;
+                lines = font != null && !text.isEmpty()
+                      ? cache.get(text, font, width, frc)
+                      : null;
+                height = getFontMetrics(getFont()).getHeight();
+                if (lines != null) {
+                    float linesHeight = 0;
+                    for (TextLayout line : lines) {
+                        linesHeight += line.getAscent() + line.getDescent() + line.getLeading();
+                    }
+                    height = Math.max(height, linesHeight);
+                }
+            }
+        }
+    }
+
+}
@@ -0,0 +1,386 @@
+/*
+ * Copyright (c) 2015, Andrej Golovnin
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  Redistributions of source code must retain the above copyright notice, this
+ *  list of conditions and the following disclaimer.
+ *
+ *  Redistributions in binary form must reproduce the above copyright notice,
+ *  this list of conditions and the following disclaimer in the documentation
+ *  and/or other materials provided with the distribution.
+ *
+ *  Neither the name of fontviewer nor the names of its
+ *  contributors may be used to endorse or promote products derived from
+ *  this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.github.golovnin.fontviewer;
+
+import com.jgoodies.binding.PresentationModel;
+import com.jgoodies.binding.value.ValueHolder;
+
+import javax.imageio.ImageIO;
+import javax.swing.JComponent;
+import javax.swing.JList;
+import javax.swing.SwingConstants;
+import javax.swing.SwingUtilities;
+import javax.swing.UIDefaults;
+import javax.swing.UIManager;
+import javax.swing.plaf.FontUIResource;
+import javax.swing.plaf.metal.MetalLookAndFeel;
+import java.awt.Color;
+import java.awt.Component;
+import java.awt.Container;
+import java.awt.Dimension;
+import java.awt.Font;
+import java.awt.FontFormatException;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Renders {@link FontsView} and {@link GlyphListCellRenderer} offscreen for
+ * a fixed set of fonts, glyphs, DPI factors and GASP settings and compares
+ * the results with golden images. Usage:
+ * <pre>
+ * GoldenImageHarness [--update] [--golden dir] [--fonts dir] [--tolerance n] [--max-diff ratio]
+ * </pre>
+ * The fonts are the TrueType files in the fonts directory, the first one is
+ * also used for the labels, so that the images do not depend on the logical
+ * fonts of the platform. Every {@link FontsView} case is rendered twice,
+ * with an empty and with a prefetched glyph cache, and both renderings are
+ * compared with the same golden image. With {@code --update} the golden
+ * images are written instead of compared. On a mismatch the actual and the
+ * difference images are written to {@code build/golden} and the exit code
+ * is 1. Without any golden image the harness fails at once, record them
+ * first.
+ *
+ * @author Andrej Golovnin
+ */
+final class GoldenImageHarness {
+
+    private static final String[] GLYPHS = { "A", "g", "@", "\u00C5", "\u0416", "\u2202" };
+
+    private final File goldenDir;
+    private final File outputDir = new File("build/golden");
+    private final boolean update;
+    private final int tolerance;
+    private final double maxDiffRatio;
+
+    private GoldenImageHarness(File goldenDir, boolean update, int tolerance, double maxDiffRatio) {
+        this.goldenDir = goldenDir;
+        this.update = update;
+        this.tolerance = tolerance;
+        this.maxDiffRatio = maxDiffRatio;
+    }
+
+    public static void main(String... args) throws Exception {
+        System.setProperty("java.awt.headless", "true");
+        boolean update = false;
+        File goldenDir = new File("src/test/golden/images");
+        File fontsDir = new File("src/test/golden/fonts");
+        int tolerance = 8;
+        double maxDiffRatio = 0.002;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--update":    update = true; break;
+                case "--golden":    goldenDir = new File(args[++i]); break;
+                case "--fonts":     fontsDir = new File(args[++i]); break;
+                case "--tolerance": tolerance = Integer.parseInt(args[++i]); break;
+                case "--max-diff":  maxDiffRatio = Double.parseDouble(args[++i]); break;
+                default:
+                    System.err.println("Unknown argument: " + args[i]);
+                    System.exit(2);
+            }
+        }
+        // The look and feel defines colors and borders, keep it fixed.
+        UIManager.setLookAndFeel(new MetalLookAndFeel());
+        List<Font> fonts = loadFonts(fontsDir);
+        if (fonts.isEmpty()) {
+            System.err.println("No TrueType fonts in " + fontsDir + ".");
+            System.exit(1);
+        }
+        // The logical fonts differ between platforms, the labels of the
+        // views use the first reference font instead.
+        useFont(fonts.get(0));
+        if (!update && !hasGoldenImages(goldenDir)) {
+            System.err.println("No golden images in " + goldenDir
+                + ", record them first with --update (gradlew goldenImages -PupdateGolden).");
+            System.exit(1);
+        }
+        GoldenImageHarness harness = new GoldenImageHarness(goldenDir, update, tolerance, maxDiffRatio);
+        System.exit(harness.run(fonts) ? 0 : 1);
+    }
+
+    private static boolean hasGoldenImages(File goldenDir) {
+        File[] files = goldenDir.listFiles((dir, name) -> name.endsWith(".png"));
+        return files != null && files.length > 0;
+    }
+
+    private static List<Font> loadFonts(File fontsDir) throws IOException, FontFormatException {
+        int size = UIManager.getFont("List.font").getSize();
+        List<Font> fonts = new ArrayList<>();
+        File[] files = fontsDir.listFiles((dir, name) -> name.toLowerCase().endsWith(".ttf"));
+        if (files != null) {
+            Arrays.sort(files);
+            for (File file : files) {
+                fonts.add(Font.createFont(Font.TRUETYPE_FONT, file).deriveFont(Font.PLAIN, size));
+            }
+        }
+        return fonts;
+    }
+
+    private static void useFont(Font font) {
+        UIDefaults defaults = UIManager.getLookAndFeelDefaults();
+        for (Object key : Collections.list(defaults.keys())) {
+            Object value = defaults.get(key);
+            if (value instanceof Font) {
+                Font lafFont = (Font) value;
+                UIManager.put(key, new FontUIResource(
+                        font.deriveFont(lafFont.getStyle(), lafFont.getSize2D())));
+            }
+        }
+    }
+
+    private boolean run(List<Font> fonts) throws InterruptedException {
+        List<Case> cases = new ArrayList<>();
+        for (Font font : fonts) {
+            for (String glyph : GLYPHS) {
+                if (font.canDisplayUpTo(glyph) != -1) {
+                    continue;
+                }
+                for (boolean gasp : new boolean[] { false, true }) {
+                    cases.add(new Case(font, glyph, null, gasp, false));
+                    for (Dpi dpi : Dpi.values()) {
+                        cases.add(new Case(font, glyph, dpi, gasp, false));
+                        cases.add(new Case(font, glyph, dpi, gasp, true));
+                    }
+                }
+            }
+        }
+
+        // Swing is not thread safe, the cases are rendered on the event
+        // dispatch thread, only the comparison and the I/O run in parallel.
+        long start = System.nanoTime();
+        ExecutorService executor = Executors.newFixedThreadPool(
+                Runtime.getRuntime().availableProcessors(), r -> {
+                    Thread t = new Thread(r, "GoldenImageHarness");
+                    t.setDaemon(true);
+                    return t;
+                });
+        int failures = 0;
+        try {
+            List<Future<String>> results = new ArrayList<>();
+            for (Case c : cases) {
+                results.add(executor.submit(() -> check(c)));
+            }
+            for (int i = 0; i < results.size(); i++) {
+                String failure;
+                try {
+                    failure = results.get(i).get();
+                } catch (ExecutionException ex) {
+                    Throwable cause = ex.getCause() instanceof InvocationTargetException
+                                    ? ex.getCause().getCause()
+                                    : ex.getCause();
+                    failure = cases.get(i).getName() + ": " + cause;
+                }
+                if (failure != null) {
+                    System.out.println("FAILED: " + failure);
+                    failures++;
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        System.out.printf("%d cases, %d failures, %d ms%n", cases.size(), failures,
+                (System.nanoTime() - start) / 1_000_000);
+        return failures == 0;
+    }
+
+    // Returns null if the case passed, the reason of the failure otherwise.
+    private String check(Case c) throws IOException, InterruptedException, InvocationTargetException {
+        BufferedImage[] holder = new BufferedImage[1];
+        SwingUtilities.invokeAndWait(() -> holder[0] = render(c.createComponent()));
+        BufferedImage actual = holder[0];
+        String fileName = c.getName() + ".png";
+        File golden = new File(goldenDir, c.getGoldenName() + ".png");
+        if (update && c.warm) {
+            // Compared with the golden image of the cold case
+            return null;
+        }
+        if (update) {
+            golden.getParentFile().mkdirs();
+            ImageIO.write(actual, "png", golden);
+            return null;
+        }
+        if (!golden.isFile()) {
+            return fileName + ": no golden image";
+        }
+        BufferedImage expected = ImageIO.read(golden);
+        String failure = compare(expected, actual);
+        if (failure != null) {
+            File actualDir = new File(outputDir, "actual");
+            File diffDir = new File(outputDir, "diff");
+            actualDir.mkdirs();
+            diffDir.mkdirs();
+            ImageIO.write(actual, "png", new File(actualDir, fileName));
+            if (expected.getWidth() == actual.getWidth() && expected.getHeight() == actual.getHeight()) {
+                ImageIO.write(diff(expected, actual), "png", new File(diffDir, fileName));
+            }
+            return fileName + ": " + failure;
+        }
+        return null;
+    }
+
+    private String compare(BufferedImage expected, BufferedImage actual) {
+        if (expected.getWidth() != actual.getWidth() || expected.getHeight() != actual.getHeight()) {
+            return String.format("size %dx%d, expected %dx%d", actual.getWidth(),
+                    actual.getHeight(), expected.getWidth(), expected.getHeight());
+        }
+        int width = expected.getWidth();
+        int height = expected.getHeight();
+        int[] e = expected.getRGB(0, 0, width, height, null, 0, width);
+        int[] a = actual.getRGB(0, 0, width, height, null, 0, width);
+        int differing = 0;
+        for (int i = 0; i < e.length; i++) {
+            if (maxChannelDelta(e[i], a[i]) > tolerance) {
+                differing++;
+            }
+        }
+        double ratio = (double) differing / e.length;
+        return ratio > maxDiffRatio
+             ? String.format("%d of %d pixels differ", differing, e.length)
+             : null;
+    }
+
+    private BufferedImage diff(BufferedImage expected, BufferedImage actual) {
+        int width = expected.getWidth();
+        int height = expected.getHeight();
+        BufferedImage diff = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                boolean differs = maxChannelDelta(expected.getRGB(x, y), actual.getRGB(x, y)) > tolerance;
+                diff.setRGB(x, y, differs ? 0xFF0000 : (actual.getRGB(x, y) & 0xFFFFFF) | 0x808080);
+            }
+        }
+        return diff;
+    }
+
+    private static int maxChannelDelta(int rgb1, int rgb2) {
+        int max = 0;
+        for (int shift = 0; shift <= 24; shift += 8) {
+            int delta = Math.abs(((rgb1 >>> shift) & 0xFF) - ((rgb2 >>> shift) & 0xFF));
+            max = Math.max(max, delta);
+        }
+        return max;
+    }
+
+    private static BufferedImage render(JComponent component) {
+        Dimension size = component.getPreferredSize();
+        component.setSize(size);
+        layoutTree(component);
+        BufferedImage image = new BufferedImage(
+                Math.max(size.width, 1), Math.max(size.height, 1), BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = image.createGraphics();
+        try {
+            g.setColor(UIManager.getColor("List.background"));
+            g.fillRect(0, 0, image.getWidth(), image.getHeight());
+            component.paint(g);
+        } finally {
+            g.dispose();
+        }
+        return image;
+    }
+
+    // Components without a peer are not validated, lay them out manually.
+    private static void layoutTree(Component component) {
+        if (component instanceof Container) {
+            Container container = (Container) component;
+            container.doLayout();
+            for (Component child : container.getComponents()) {
+                layoutTree(child);
+            }
+        }
+    }
+
+    private static final class Case {
+
+        private final Font font;
+        private final String glyph;
+        private final Dpi dpi;
+        private final boolean gasp;
+        private final boolean warm;
+
+        // A null DPI stands for the glyph list cell renderer. A warm case
+        // blits prefetched renderings and must match the cold case.
+        Case(Font font, String glyph, Dpi dpi, boolean gasp, boolean warm) {
+            this.font = font;
+            this.glyph = glyph;
+            this.dpi = dpi;
+            this.gasp = gasp;
+            this.warm = warm;
+        }
+
+        String getName() {
+            return warm ? getGoldenName() + "-warm" : getGoldenName();
+        }
+
+        String getGoldenName() {
+            return String.format("%s-%s-U+%04X-%s-%s",
+                    dpi != null ? "fontsview" : "cell",
+                    font.getFontName().replaceAll("[^A-Za-z0-9]+", "_"),
+                    glyph.codePointAt(0),
+                    dpi != null ? dpi.getDpi() + "dpi" : "list",
+                    gasp ? "gasp" : "default");
+        }
+
+        JComponent createComponent() {
+            ValueHolder gaspHolder = new ValueHolder(gasp);
+            if (dpi == null) {
+                GlyphListCellRenderer r = new GlyphListCellRenderer(gaspHolder);
+                r.setHorizontalAlignment(SwingConstants.CENTER);
+                JList<String> list = new JList<>(new String[] { glyph });
+                list.setFont(font);
+                return (JComponent) r.getListCellRendererComponent(list, glyph, 0, false, false);
+            }
+            Fonts fonts = Fonts.forDpi(dpi, font);
+            GlyphImageCache cache = new GlyphImageCache(warm ? 16L * 1024 * 1024 : 0);
+            if (warm) {
+                // Filled like GlyphPrefetcher fills it
+                Color foreground = UIManager.getColor("Label.foreground");
+                Color background = UIManager.getColor("List.background");
+                for (Font f : fonts.toArray()) {
+                    cache.put(f, glyph, -1, gasp, foreground, background,
+                            GlyphRenderer.renderWithInk(f, glyph, gasp, foreground, background));
+                }
+            }
+            return new FontsView(gaspHolder, new ValueHolder(glyph), new ValueHolder(null),
+                    new PresentationModel<>(fonts), cache).createView();
+        }
+    }
+
+}